@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.ContentValues;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.xyzreader.remote.FeedItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Maps a synthetic feed the way {@link ArticleSync} does, on 1 up to one thread per core, and
+ * logs the throughput for every thread count. Only the mapping stage is timed, the single
+ * database writer behind it does not scale with cores.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ArticleMappingBenchmark {
+    private static final String TAG = "ArticleMappingBenchmark";
+
+    private static final int ARTICLES = 50000;
+    private static final int BODY_LENGTH = 2000;
+    private static final int RUNS = 3;
+
+    @Test
+    public void scalingByThreadCount() throws Exception {
+        List<FeedItem> feed = createFeed();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warms up the JIT, and fixes the row count every run has to reach
+        int rows = map(feed, cores);
+        assertEquals(ARTICLES, rows);
+
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads++) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                assertEquals(rows, map(feed, threads));
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            double rowsPerSecond = rows * 1e9 / best;
+            if (threads == 1) {
+                baseline = rowsPerSecond;
+            }
+            Log.i(TAG, String.format(Locale.US, "%d of %d threads: %.0f rows/s (%.2fx)",
+                    threads, cores, rowsPerSecond, rowsPerSecond / baseline));
+        }
+    }
+
+    /** Maps the feed in chunks on a pool of the given size, returns the number of rows. */
+    private static int map(List<FeedItem> feed, int threads)
+            throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<List<ContentValues>>> chunks = new ArrayList<>();
+            ArticleSync.MapTask task = new ArticleSync.MapTask();
+            for (FeedItem item : feed) {
+                task.add(item, null);
+                if (task.size() == ArticleSync.MAP_CHUNK_SIZE) {
+                    chunks.add(pool.submit(task));
+                    task = new ArticleSync.MapTask();
+                }
+            }
+            if (task.size() > 0) {
+                chunks.add(pool.submit(task));
+            }
+
+            // Collected in order, as the writer does
+            int rows = 0;
+            for (Future<List<ContentValues>> chunk : chunks) {
+                rows += chunk.get().size();
+            }
+            return rows;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<FeedItem> createFeed() {
+        Random random = new Random(24);
+        StringBuilder body = new StringBuilder(BODY_LENGTH);
+        ArrayList<FeedItem> feed = new ArrayList<>(ARTICLES);
+        for (int i = 0; i < ARTICLES; i++) {
+            body.setLength(0);
+            while (body.length() < BODY_LENGTH) {
+                body.append((char) ('a' + random.nextInt(26)));
+                if (random.nextInt(7) == 0) {
+                    body.append(' ');
+                }
+            }
+
+            FeedItem item = new FeedItem();
+            item.id = Integer.toString(i);
+            item.author = "Author " + random.nextInt(100);
+            item.title = "Title " + i;
+            item.body = body.toString();
+            item.thumb = "https://example.com/thumb/" + i + ".jpg";
+            item.photo = "https://example.com/photo/" + i + ".jpg";
+            item.aspectRatio = "1.5";
+            item.publishedDate = String.format(Locale.US, "20%02d-%02d-%02dT%02d:%02d:00.000Z",
+                    random.nextInt(17), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60));
+            feed.add(item);
+        }
+        return feed;
+    }
+}
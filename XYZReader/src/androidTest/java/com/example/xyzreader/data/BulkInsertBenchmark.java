@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Writes 1k, 10k and 100k new items into an empty database, once through
+ * {@link ItemsProvider#bulkInsert} and once as one insert per item through
+ * {@link ItemsProvider#applyBatch}, the way sync used to. Results go to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkInsertBenchmark {
+    private static final String TAG = "BulkInsertBenchmark";
+
+    private static final int[] ROW_COUNTS = {1000, 10000, 100000};
+
+    @Test
+    public void bulkInsertAgainstApplyBatch() throws Exception {
+        for (int rows : ROW_COUNTS) {
+            ContentValues[] items = TestItems.newItems(0, rows);
+            double bulkInsert = measure(items, true);
+            double applyBatch = measure(items, false);
+            Log.i(TAG, String.format(Locale.US,
+                    "%d rows: bulkInsert %.0f rows/s, applyBatch %.0f rows/s (%.1fx)",
+                    rows, bulkInsert, applyBatch, bulkInsert / applyBatch));
+        }
+    }
+
+    /** Writes the items into a fresh database and returns the rows written per second. */
+    private static double measure(ContentValues[] items, boolean bulk) throws Exception {
+        Context context = TestItems.newIsolatedContext();
+        ItemsProvider provider = TestItems.newProvider(context);
+        Uri dirUri = ItemsContract.Items.buildDirUri();
+        try {
+            // Opens the database and creates the schema outside of the timed part
+            provider.query(dirUri, null, null, null, null).close();
+
+            ArrayList<ContentProviderOperation> operations = new ArrayList<>(items.length);
+            if (!bulk) {
+                for (ContentValues values : items) {
+                    operations.add(ContentProviderOperation.newInsert(dirUri)
+                            .withValues(values)
+                            .build());
+                }
+            }
+
+            long start = System.nanoTime();
+            int written = bulk
+                    ? provider.bulkInsert(dirUri, items)
+                    : provider.applyBatch(operations).length;
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(items.length, written);
+            return items.length * 1e9 / elapsed;
+        } finally {
+            provider.shutdown();
+            TestItems.deleteDatabase(context);
+        }
+    }
+}
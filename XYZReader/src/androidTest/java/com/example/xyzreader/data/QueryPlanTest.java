@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the hot queries are answered from an index, without a
+ * full table scan and without sorting in a temporary B-tree. The SQL is built by the provider
+ * itself, so the plans are those of the queries the app runs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+    private static final String LIST_INDEX = ItemsProvider.Tables.ITEMS + "_list";
+    private static final String SERVER_ID_INDEX =
+            ItemsProvider.Tables.ITEMS + "_" + ItemsContract.Items.SERVER_ID;
+
+    // "SCAN TABLE items" before SQLite 3.24, "SCAN items" after
+    private static final Pattern ITEMS_SCAN = Pattern.compile(
+            "^SCAN (TABLE )?" + ItemsProvider.Tables.ITEMS + "\\b");
+
+    private Context mContext;
+    private ItemsDatabase mDatabase;
+    private ItemsProvider mProvider;
+
+    @Before
+    public void setUp() {
+        mContext = TestItems.newIsolatedContext();
+        mDatabase = new ItemsDatabase(mContext);
+        // Only used to build SQL, it never opens a database of its own
+        mProvider = new ItemsProvider();
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        TestItems.deleteDatabase(mContext);
+    }
+
+    @Test
+    public void firstListPageReadsTheListIndex() {
+        assertIndexed(explainQuery(ItemsContract.Items.buildPageUri(30)), LIST_INDEX);
+    }
+
+    @Test
+    public void keysetPageSeeksIntoTheListIndex() {
+        List<String> plan = explainQuery(
+                ItemsContract.Items.buildPageUri(30, 1000000000000L, 500));
+        assertIndexed(plan, LIST_INDEX);
+        assertTrue("Keyset page scans: " + plan, plan.toString().contains("SEARCH"));
+    }
+
+    @Test
+    public void positionLookupSeeksIntoTheListIndex() {
+        assertIndexed(explainQuery(ItemsContract.Items.buildPositionUri(500)), LIST_INDEX);
+    }
+
+    @Test
+    public void serverIdLookupUsesTheServerIdIndex() {
+        assertIndexed(explainStatement(ItemsProvider.UpsertStatements.SELECT_ID),
+                SERVER_ID_INDEX);
+    }
+
+    @Test
+    public void upsertUpdatesByPrimaryKey() {
+        assertIndexed(explainStatement(ItemsProvider.UpsertStatements.UPDATE_ITEM),
+                "INTEGER PRIMARY KEY");
+        assertIndexed(explainStatement(ItemsProvider.UpsertStatements.UPDATE_BODY),
+                "INTEGER PRIMARY KEY");
+    }
+
+    private List<String> explainQuery(Uri uri) {
+        SelectionBuilder builder = new SelectionBuilder();
+        String sql = mProvider.buildQuery(builder, uri, ArticleLoader.Query.PROJECTION, null,
+                null, ItemsContract.Items.DEFAULT_SORT);
+        return explain(sql, builder.getSelectionArgs());
+    }
+
+    private List<String> explainStatement(String sql) {
+        String[] args = new String[sql.length() - sql.replace("?", "").length()];
+        Arrays.fill(args, "1");
+        return explain(sql, args);
+    }
+
+    private List<String> explain(String sql, String... args) {
+        SQLiteDatabase db = mDatabase.getReadableDatabase();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        ArrayList<String> plan = new ArrayList<>();
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan;
+    }
+
+    private static void assertIndexed(List<String> plan, String index) {
+        assertTrue("Does not use " + index + ": " + plan, plan.toString().contains(index));
+        for (String step : plan) {
+            assertFalse("Sorts in a temporary B-tree: " + plan, step.contains("TEMP B-TREE"));
+            boolean scansItems = ITEMS_SCAN.matcher(step).find()
+                    && !step.contains("COVERING INDEX " + LIST_INDEX);
+            assertFalse("Scans the items table: " + plan, scansItems);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times list page queries on one thread while another writes a large {@link
+ * ItemsProvider#bulkInsert} transaction. With write-ahead logging the reads go on against the
+ * last commit, a read that had to wait for the write would take about as long as the write.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadDuringWriteTest {
+    private static final String TAG = "ReadDuringWriteTest";
+
+    private static final int INITIAL_ROWS = 1000;
+    private static final int WRITE_ROWS = 50000;
+    private static final int PAGE_SIZE = 30;
+    private static final int MIN_READS_DURING_WRITE = 10;
+
+    private Context mContext;
+    private ItemsProvider mProvider;
+
+    @Before
+    public void setUp() {
+        mContext = TestItems.newIsolatedContext();
+        mProvider = TestItems.newProvider(mContext);
+        mProvider.bulkInsert(ItemsContract.Items.buildDirUri(),
+                TestItems.newItems(0, INITIAL_ROWS));
+    }
+
+    @After
+    public void tearDown() {
+        mProvider.shutdown();
+        TestItems.deleteDatabase(mContext);
+    }
+
+    @Test
+    public void listReadsDoNotWaitForWrites() throws Exception {
+        final ContentValues[] items = TestItems.newItems(INITIAL_ROWS, WRITE_ROWS);
+        final long[] writeNanos = new long[1];
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                mProvider.bulkInsert(ItemsContract.Items.buildDirUri(), items);
+                writeNanos[0] = System.nanoTime() - start;
+            }
+        }, TAG);
+
+        Uri pageUri = ItemsContract.Items.buildPageUri(PAGE_SIZE);
+        ArrayList<Long> latencies = new ArrayList<>();
+        writer.start();
+        while (writer.isAlive()) {
+            long start = System.nanoTime();
+            Cursor cursor = mProvider.query(pageUri, ArticleLoader.Query.PROJECTION, null, null,
+                    ItemsContract.Items.DEFAULT_SORT);
+            int count;
+            try {
+                count = cursor.getCount();
+            } finally {
+                cursor.close();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (writer.isAlive()) {
+                assertEquals(PAGE_SIZE, count);
+                latencies.add(elapsed);
+            }
+        }
+        writer.join();
+
+        Collections.sort(latencies);
+        int reads = latencies.size();
+        Log.i(TAG, String.format(Locale.US,
+                "%d reads during a %d row write of %d ms: median %.2f ms, 95th %.2f ms, max %.2f ms",
+                reads, WRITE_ROWS, writeNanos[0] / 1000000,
+                reads > 0 ? latencies.get(reads / 2) / 1e6 : 0,
+                reads > 0 ? latencies.get(reads * 95 / 100) / 1e6 : 0,
+                reads > 0 ? latencies.get(reads - 1) / 1e6 : 0));
+        assertTrue("Only " + reads + " reads finished while the write was running",
+                reads >= MIN_READS_DURING_WRITE);
+    }
+}
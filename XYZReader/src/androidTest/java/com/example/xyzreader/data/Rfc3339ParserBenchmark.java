@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.text.format.Time;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times {@link Rfc3339Parser} against the {@link Time} path it replaced. Results go to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class Rfc3339ParserBenchmark {
+    private static final String TAG = "Rfc3339ParserBenchmark";
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 200000;
+
+    // Time keeps whole seconds only, so there are no fractions here
+    private static final String[] TIMESTAMPS = {
+            "2013-06-20T00:00:00.000Z",
+            "2014-01-09T12:30:45+02:00",
+            "1999-12-31T23:59:59-08:00",
+            "2016-02-29T06:00:00Z",
+    };
+
+    @Test
+    public void compareWithTime() {
+        // Both paths have to agree before their speed means anything
+        Time time = new Time();
+        for (String timestamp : TIMESTAMPS) {
+            time.parse3339(timestamp);
+            assertEquals(timestamp, time.toMillis(false), Rfc3339Parser.parse(timestamp));
+        }
+
+        runTime(WARMUP_ITERATIONS);
+        runParser(WARMUP_ITERATIONS);
+
+        long start = System.nanoTime();
+        runTime(ITERATIONS);
+        double timeNanos = (System.nanoTime() - start) / (double) ITERATIONS;
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        start = System.nanoTime();
+        runParser(ITERATIONS);
+        double parserNanos = (System.nanoTime() - start) / (double) ITERATIONS;
+        int parserAllocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, String.format(Locale.US,
+                "Time: %.0f ns/op, Rfc3339Parser: %.0f ns/op (%.1fx), %d allocations in %d calls",
+                timeNanos, parserNanos, timeNanos / parserNanos, parserAllocations, ITERATIONS));
+    }
+
+    private static long runTime(int iterations) {
+        Time time = new Time();
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            time.parse3339(TIMESTAMPS[i % TIMESTAMPS.length]);
+            sum += time.toMillis(false);
+        }
+        return sum;
+    }
+
+    private static long runParser(int iterations) {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            sum += Rfc3339Parser.parse(TIMESTAMPS[i % TIMESTAMPS.length]);
+        }
+        return sum;
+    }
+}
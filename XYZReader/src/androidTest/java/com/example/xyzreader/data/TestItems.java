@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.test.RenamingDelegatingContext;
+
+import com.example.xyzreader.remote.FeedItem;
+
+import java.util.Random;
+
+/**
+ * Synthetic items, and providers over a database of their own so that tests never touch the
+ * app's articles.
+ */
+final class TestItems {
+    private static final String TEST_PREFIX = "test.";
+    private static final int BODY_LENGTH = 300;
+
+    private TestItems() {
+    }
+
+    /** A context whose database files are kept apart from the app's, starting out empty. */
+    static Context newIsolatedContext() {
+        Context context = new RenamingDelegatingContext(
+                InstrumentationRegistry.getTargetContext(), TEST_PREFIX);
+        context.deleteDatabase(ItemsDatabase.DATABASE_NAME);
+        return context;
+    }
+
+    static ItemsProvider newProvider(Context context) {
+        ItemsProvider provider = new ItemsProvider();
+        provider.attachInfo(context, null);
+        return provider;
+    }
+
+    static void deleteDatabase(Context context) {
+        context.deleteDatabase(ItemsDatabase.DATABASE_NAME);
+    }
+
+    /**
+     * Values for {@link ItemsProvider#bulkInsert} with every column set. Items are numbered from
+     * {@code first}, later numbers are published later.
+     */
+    static ContentValues[] newItems(int first, int count) {
+        Random random = new Random(first);
+        StringBuilder body = new StringBuilder(BODY_LENGTH);
+        ContentValues[] items = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            int number = first + i;
+            body.setLength(0);
+            while (body.length() < BODY_LENGTH) {
+                body.append((char) ('a' + random.nextInt(26)));
+                if (random.nextInt(7) == 0) {
+                    body.append(' ');
+                }
+            }
+
+            FeedItem item = new FeedItem();
+            item.id = "item-" + number;
+            item.author = "Author " + random.nextInt(100);
+            item.title = "Title " + number;
+            item.body = body.toString();
+            item.thumb = "https://example.com/thumb/" + number + ".jpg";
+            item.photo = "https://example.com/photo/" + number + ".jpg";
+
+            ContentValues values = new ContentValues();
+            values.put(ItemsContract.Items.SERVER_ID, item.id);
+            values.put(ItemsContract.Items.AUTHOR, item.author);
+            values.put(ItemsContract.Items.TITLE, item.title);
+            values.put(ItemsContract.Items.BODY, item.body);
+            values.put(ItemsContract.Items.THUMB_URL, item.thumb);
+            values.put(ItemsContract.Items.PHOTO_URL, item.photo);
+            values.put(ItemsContract.Items.ASPECT_RATIO, 1.5f);
+            values.put(ItemsContract.Items.PUBLISHED_DATE, 1000000000000L + number * 60000L);
+            values.put(ItemsContract.Items.CONTENT_HASH, item.contentHash());
+            items[i] = values;
+        }
+        return items;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.remote;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Revalidation of the feed against the HTTP cache, on a local server.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ApiTest {
+    private static final String ETAG = "\"v1\"";
+    private static final String FEED = "[{\"id\":\"1\",\"title\":\"First\"},"
+            + "{\"id\":\"2\",\"title\":\"Second\"}]";
+
+    private MockWebServer mServer;
+    private URL mUrl;
+    private Cache mCache;
+    private OkHttpClient mClient;
+    private List<FeedItem> mArticles;
+    private Api.ArticleHandler mHandler;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mUrl = mServer.url("/data.json").url();
+
+        File cacheDir = new File(InstrumentationRegistry.getTargetContext().getCacheDir(),
+                "api-test");
+        mCache = new Cache(cacheDir, 1024 * 1024);
+        mCache.evictAll();
+        mClient = new OkHttpClient.Builder()
+                .cache(mCache)
+                .build();
+
+        mArticles = new ArrayList<>();
+        mHandler = new Api.ArticleHandler() {
+            @Override
+            public void onArticle(FeedItem item) {
+                mArticles.add(item);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        mCache.delete();
+    }
+
+    @Test
+    public void unchangedFeedIsNotModified() throws Exception {
+        mServer.enqueue(feedResponse(FEED));
+        mServer.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", ETAG));
+
+        assertEquals(Api.RESULT_OK, Api.fetchArticles(mClient, mUrl, false, mHandler));
+        assertEquals(2, mArticles.size());
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+
+        mArticles.clear();
+        assertEquals(Api.RESULT_NOT_MODIFIED, Api.fetchArticles(mClient, mUrl, false, mHandler));
+        assertTrue("Handler called for an unchanged feed", mArticles.isEmpty());
+        assertEquals(ETAG, mServer.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void forceNetworkReadsTheFeedAgain() throws Exception {
+        // A feed that fails to parse can still be cached, and would then revalidate as unchanged
+        mServer.enqueue(feedResponse("[{\"id\":\"1\",\"title\":"));
+        mServer.enqueue(feedResponse(FEED));
+
+        assertEquals(Api.RESULT_ERROR, Api.fetchArticles(mClient, mUrl, false, mHandler));
+        mServer.takeRequest();
+
+        mArticles.clear();
+        assertEquals(Api.RESULT_OK, Api.fetchArticles(mClient, mUrl, true, mHandler));
+        assertEquals(2, mArticles.size());
+        assertEquals("2", mArticles.get(1).id);
+        RecordedRequest request = mServer.takeRequest();
+        assertNull(request.getHeader("If-None-Match"));
+    }
+
+    private static MockResponse feedResponse(String body) {
+        return new MockResponse()
+                .setHeader("ETag", ETAG)
+                .setHeader("Cache-Control", "no-cache")
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.database.Cursor;
+
+/**
+ * The metadata of one article, copied out of a cursor over {@link ArticleLoader.Query}.
+ */
+public class Article {
+    public final long id;
+    public final String title;
+    public final String author;
+    public final long publishedDate;
+    public final String thumbUrl;
+    public final String photoUrl;
+    public final float aspectRatio;
+    public final long contentHash;
+
+    private Article(Cursor cursor) {
+        id = cursor.getLong(ArticleLoader.Query._ID);
+        title = cursor.getString(ArticleLoader.Query.TITLE);
+        author = cursor.getString(ArticleLoader.Query.AUTHOR);
+        publishedDate = cursor.getLong(ArticleLoader.Query.PUBLISHED_DATE);
+        thumbUrl = cursor.getString(ArticleLoader.Query.THUMB_URL);
+        photoUrl = cursor.getString(ArticleLoader.Query.PHOTO_URL);
+        aspectRatio = cursor.getFloat(ArticleLoader.Query.ASPECT_RATIO);
+        contentHash = cursor.getLong(ArticleLoader.Query.CONTENT_HASH);
+    }
+
+    /** Copies the row the cursor is on. */
+    public static Article fromCursor(Cursor cursor) {
+        return new Article(cursor);
+    }
+}
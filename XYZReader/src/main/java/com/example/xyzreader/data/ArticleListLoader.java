@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+/**
+ * Loads a page of the article list as an {@link ArticleSnapshot}. The cursor is closed as soon
+ * as it has been copied, and the page reloads whenever the items change.
+ */
+public class ArticleListLoader extends AsyncTaskLoader<ArticleSnapshot> {
+    // A sync commits in small batches, a page reloads at most this often while it runs
+    private static final long UPDATE_THROTTLE_MILLIS = 500;
+
+    private final Uri mUri;
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private boolean mObserving;
+    private ArticleSnapshot mSnapshot;
+
+    /** Loads the first page of the list. */
+    public static ArticleListLoader newFirstPageInstance(Context context, int pageSize) {
+        return new ArticleListLoader(context, ItemsContract.Items.buildPageUri(pageSize));
+    }
+
+    /** Loads the page that follows the given row. */
+    public static ArticleListLoader newPageInstance(Context context, int pageSize,
+            long afterDate, long afterId) {
+        return new ArticleListLoader(context,
+                ItemsContract.Items.buildPageUri(pageSize, afterDate, afterId));
+    }
+
+    private ArticleListLoader(Context context, Uri uri) {
+        super(context);
+        mUri = uri;
+        setUpdateThrottle(UPDATE_THROTTLE_MILLIS);
+    }
+
+    @Override
+    public ArticleSnapshot loadInBackground() {
+        Cursor cursor = getContext().getContentResolver().query(mUri,
+                ArticleLoader.Query.PROJECTION, null, null, ItemsContract.Items.DEFAULT_SORT);
+        if (cursor == null) {
+            return ArticleSnapshot.EMPTY;
+        }
+        try {
+            return ArticleSnapshot.fromCursor(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(ArticleSnapshot snapshot) {
+        if (isReset()) {
+            return;
+        }
+        mSnapshot = snapshot;
+        if (isStarted()) {
+            super.deliverResult(snapshot);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            // Page uris carry their bounds as query parameters, so watch the whole directory
+            getContext().getContentResolver().registerContentObserver(
+                    ItemsContract.Items.buildDirUri(), true, mObserver);
+            mObserving = true;
+        }
+        if (mSnapshot != null) {
+            deliverResult(mSnapshot);
+        }
+        if (takeContentChanged() || mSnapshot == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mSnapshot = null;
+    }
+}
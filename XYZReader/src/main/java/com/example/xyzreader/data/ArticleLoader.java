@@ -33,17 +33,20 @@ import android.net.Uri;
  */
 public class ArticleLoader extends CursorLoader {
     public static ArticleLoader newAllArticlesInstance(Context context) {
-        return new ArticleLoader(context, ItemsContract.Items.buildDirUri());
+        return new ArticleLoader(context, ItemsContract.Items.buildDirUri(),
+                Query.PROJECTION);
     }
 
     public static ArticleLoader newInstanceForItemId(Context context, long itemId) {
-        return new ArticleLoader(context, ItemsContract.Items.buildItemUri(itemId));
+        return new ArticleLoader(context, ItemsContract.Items.buildItemUri(itemId),
+                Query.PROJECTION);
     }
 
-    private ArticleLoader(Context context, Uri uri) {
-        super(context, uri, Query.PROJECTION, null, null, ItemsContract.Items.DEFAULT_SORT);
+    private ArticleLoader(Context context, Uri uri, String[] projection) {
+        super(context, uri, projection, null, null, ItemsContract.Items.DEFAULT_SORT);
     }
 
+    /** Article metadata. Bodies are read on their own, see {@link BodyQuery}. */
     public interface Query {
         String[] PROJECTION = {
                 ItemsContract.Items._ID,
@@ -53,7 +56,7 @@ public class ArticleLoader extends CursorLoader {
                 ItemsContract.Items.THUMB_URL,
                 ItemsContract.Items.PHOTO_URL,
                 ItemsContract.Items.ASPECT_RATIO,
-                ItemsContract.Items.BODY,
+                ItemsContract.Items.CONTENT_HASH,
         };
 
         int _ID = 0;
@@ -63,6 +66,15 @@ public class ArticleLoader extends CursorLoader {
         int THUMB_URL = 4;
         int PHOTO_URL = 5;
         int ASPECT_RATIO = 6;
-        int BODY = 7;
+        int CONTENT_HASH = 7;
+    }
+
+    /** Projection for {@link ItemsContract.Items#buildBodyUri(long)}. */
+    public interface BodyQuery {
+        String[] PROJECTION = {
+                ItemsContract.Items.BODY,
+        };
+
+        int BODY = 0;
     }
 }
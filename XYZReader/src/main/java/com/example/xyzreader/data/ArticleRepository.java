@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+
+/**
+ * Articles loaded recently, shared by everything that shows them so that a row read once is not
+ * queried again. Entries are dropped as soon as the items change, and listeners are told so they
+ * can load a fresh copy. All public methods must be called on the main thread.
+ */
+public class ArticleRepository {
+
+    private static final int CACHE_SIZE = 64;
+
+    /** Passed to listeners when every article was invalidated. */
+    public static final long ALL_ITEMS = -1;
+
+    public interface Listener {
+        /** Called on the main thread with the id of the changed item, or {@link #ALL_ITEMS}. */
+        void onArticleInvalidated(long itemId);
+    }
+
+    private static ArticleRepository sInstance;
+
+    private final LruCache<Long, Article> mCache = new LruCache<>(CACHE_SIZE);
+    private final ArrayList<Listener> mListeners = new ArrayList<>();
+
+    public static ArticleRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ArticleRepository(Context context) {
+        context.getContentResolver().registerContentObserver(ItemsContract.Items.buildDirUri(),
+                true, new ContentObserver(new Handler(Looper.getMainLooper())) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        onChange(selfChange, null);
+                    }
+
+                    @Override
+                    public void onChange(boolean selfChange, Uri uri) {
+                        invalidate(uri);
+                    }
+                });
+    }
+
+    /**
+     * Returns the article if it is cached, null otherwise.
+     */
+    public Article get(long itemId) {
+        return mCache.get(itemId);
+    }
+
+    public void put(Article article) {
+        mCache.put(article.id, article);
+    }
+
+    public void addListener(Listener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void invalidate(Uri uri) {
+        long itemId = ALL_ITEMS;
+        if (uri != null && uri.getPathSegments().size() > 1) {
+            itemId = ItemsContract.Items.getItemId(uri);
+            mCache.remove(itemId);
+        } else {
+            mCache.evictAll();
+        }
+
+        // Listeners may remove themselves while being told
+        for (Listener listener : new ArrayList<>(mListeners)) {
+            listener.onArticleInvalidated(itemId);
+        }
+    }
+}
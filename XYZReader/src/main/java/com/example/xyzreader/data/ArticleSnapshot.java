@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.database.Cursor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * An immutable copy of a list of articles, one array per column. Everything a list cell shows is
+ * read out of the cursor once, off the UI thread, so binding a cell allocates nothing and never
+ * touches a CursorWindow. Authors are dictionary encoded, since a feed has far fewer authors
+ * than articles.
+ */
+public final class ArticleSnapshot {
+    public static final ArticleSnapshot EMPTY = new ArticleSnapshot(0);
+
+    private final long[] mIds;
+    private final long[] mPublishedDates;
+    private final long[] mContentHashes;
+    private final float[] mAspectRatios;
+    private final String[] mTitles;
+    private final String[] mThumbUrls;
+    private final int[] mAuthorIndexes;
+    private String[] mAuthors;
+
+    private ArticleSnapshot(int size) {
+        mIds = new long[size];
+        mPublishedDates = new long[size];
+        mContentHashes = new long[size];
+        mAspectRatios = new float[size];
+        mTitles = new String[size];
+        mThumbUrls = new String[size];
+        mAuthorIndexes = new int[size];
+        mAuthors = new String[0];
+    }
+
+    /** Copies every row of a cursor over {@link ArticleLoader.Query#PROJECTION}. */
+    public static ArticleSnapshot fromCursor(Cursor cursor) {
+        int size = cursor.getCount();
+        ArticleSnapshot snapshot = new ArticleSnapshot(size);
+        AuthorDictionary authors = new AuthorDictionary();
+        for (int i = 0; i < size; i++) {
+            cursor.moveToPosition(i);
+            snapshot.mIds[i] = cursor.getLong(ArticleLoader.Query._ID);
+            snapshot.mPublishedDates[i] = cursor.getLong(ArticleLoader.Query.PUBLISHED_DATE);
+            snapshot.mContentHashes[i] = cursor.getLong(ArticleLoader.Query.CONTENT_HASH);
+            snapshot.mAspectRatios[i] = cursor.getFloat(ArticleLoader.Query.ASPECT_RATIO);
+            snapshot.mTitles[i] = cursor.getString(ArticleLoader.Query.TITLE);
+            snapshot.mThumbUrls[i] = cursor.getString(ArticleLoader.Query.THUMB_URL);
+            snapshot.mAuthorIndexes[i] =
+                    authors.encode(cursor.getString(ArticleLoader.Query.AUTHOR));
+        }
+        snapshot.mAuthors = authors.toArray();
+        return snapshot;
+    }
+
+    /**
+     * Joins snapshots end to end, merging their author dictionaries. A row whose id already came
+     * up in an earlier part is left out, since pages loaded at different times can overlap for a
+     * moment while rows move between them.
+     */
+    public static ArticleSnapshot concat(List<ArticleSnapshot> parts) {
+        if (parts.isEmpty()) {
+            return EMPTY;
+        } else if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        int total = 0;
+        for (ArticleSnapshot part : parts) {
+            total += part.size();
+        }
+        HashSet<Long> ids = new HashSet<>(total * 2);
+        boolean[][] keep = new boolean[parts.size()][];
+        int size = 0;
+        for (int p = 0; p < parts.size(); p++) {
+            ArticleSnapshot part = parts.get(p);
+            keep[p] = new boolean[part.size()];
+            for (int i = 0; i < part.size(); i++) {
+                if (ids.add(part.mIds[i])) {
+                    keep[p][i] = true;
+                    size++;
+                }
+            }
+        }
+
+        ArticleSnapshot snapshot = new ArticleSnapshot(size);
+        AuthorDictionary authors = new AuthorDictionary();
+        int offset = 0;
+        for (int p = 0; p < parts.size(); p++) {
+            ArticleSnapshot part = parts.get(p);
+            int[] remap = new int[part.mAuthors.length];
+            for (int a = 0; a < remap.length; a++) {
+                remap[a] = authors.encode(part.mAuthors[a]);
+            }
+            for (int i = 0; i < part.size(); i++) {
+                if (!keep[p][i]) {
+                    continue;
+                }
+                snapshot.mIds[offset] = part.mIds[i];
+                snapshot.mPublishedDates[offset] = part.mPublishedDates[i];
+                snapshot.mContentHashes[offset] = part.mContentHashes[i];
+                snapshot.mAspectRatios[offset] = part.mAspectRatios[i];
+                snapshot.mTitles[offset] = part.mTitles[i];
+                snapshot.mThumbUrls[offset] = part.mThumbUrls[i];
+                snapshot.mAuthorIndexes[offset] = remap[part.mAuthorIndexes[i]];
+                offset++;
+            }
+        }
+        snapshot.mAuthors = authors.toArray();
+        return snapshot;
+    }
+
+    public int size() {
+        return mIds.length;
+    }
+
+    public long getId(int position) {
+        return mIds[position];
+    }
+
+    public long getPublishedDate(int position) {
+        return mPublishedDates[position];
+    }
+
+    public long getContentHash(int position) {
+        return mContentHashes[position];
+    }
+
+    public float getAspectRatio(int position) {
+        return mAspectRatios[position];
+    }
+
+    public String getTitle(int position) {
+        return mTitles[position];
+    }
+
+    public String getThumbUrl(int position) {
+        return mThumbUrls[position];
+    }
+
+    public String getAuthor(int position) {
+        return mAuthors[mAuthorIndexes[position]];
+    }
+
+    private static class AuthorDictionary {
+        private final HashMap<String, Integer> mIndexes = new HashMap<>();
+        private String[] mAuthors = new String[16];
+
+        int encode(String author) {
+            Integer index = mIndexes.get(author);
+            if (index == null) {
+                index = mIndexes.size();
+                mIndexes.put(author, index);
+                if (index == mAuthors.length) {
+                    mAuthors = Arrays.copyOf(mAuthors, index * 2);
+                }
+                mAuthors[index] = author;
+            }
+            return index;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(mAuthors, mIndexes.size());
+        }
+    }
+}
@@ -0,0 +1,557 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.Uri;
+import android.os.Process;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.example.xyzreader.R;
+import com.example.xyzreader.remote.Api;
+import com.example.xyzreader.remote.FeedItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the feed and writes what changed into {@link ItemsProvider}. The feed is parsed on
+ * the calling thread, which must not be the main thread. Articles are mapped to rows in chunks,
+ * on a pool of threads if configured, and a single writer thread commits the rows in feed order
+ * in small batches. Shared by {@link UpdaterService} and {@link SyncJobService}.
+ */
+public class ArticleSync {
+    private static final String TAG = "ArticleSync";
+
+    // Ids per delete, well below SQLite's limit of 999 bound arguments
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    // Articles mapped per task, enough to make the hand-off between threads cheap while the
+    // first rows still reach the writer early
+    static final int MAP_CHUNK_SIZE = 32;
+    // Most rows per transaction, give or take a chunk. Every commit lets the list show what
+    // has arrived so far.
+    private static final int WRITE_BATCH_SIZE = 100;
+    // Chunks the parser may get ahead of the writer, this bounds what a sync holds in memory
+    private static final int WRITE_QUEUE_CAPACITY = 8;
+
+    // Put after the last chunk to stop the writer, never run
+    private static final Future<List<ContentValues>> END_OF_FEED =
+            new FutureTask<>(new Callable<List<ContentValues>>() {
+                @Override
+                public List<ContentValues> call() {
+                    return Collections.emptyList();
+                }
+            });
+
+    // Maps on the parsing thread when there is no pool
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private static final ThreadFactory MAPPER_THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "ArticleSync #" + mCount.incrementAndGet());
+        }
+    };
+
+    private final Context mContext;
+    private final int mMappingThreads;
+
+    public ArticleSync(Context context) {
+        this(context, context.getResources().getInteger(R.integer.sync_mapping_threads));
+    }
+
+    /**
+     * @param mappingThreads threads that map articles to rows, 0 for one per core, 1 to map them
+     *                       on the parsing thread
+     */
+    public ArticleSync(Context context, int mappingThreads) {
+        mContext = context;
+        mMappingThreads = mappingThreads > 0
+                ? mappingThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Brings the items in line with the feed.
+     *
+     * @return true if the items match the feed afterwards
+     */
+    public boolean run() {
+        ConnectivityManager cm =
+                (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo ni = cm.getActiveNetworkInfo();
+        if (ni == null || !ni.isConnected()) {
+            Log.w(TAG, "Not online, not refreshing.");
+            return false;
+        }
+
+        mContext.sendStickyBroadcast(new Intent(UpdaterService.BROADCAST_ACTION_STATE_CHANGE)
+                .putExtra(UpdaterService.EXTRA_REFRESHING, true));
+
+        final Uri dirUri = ItemsContract.Items.buildDirUri();
+
+        // Rows we already have, keyed by server id. Whatever is left in here once the whole
+        // feed has been read is no longer published and gets deleted.
+        final HashMap<String, StoredItem> stored = loadStoredItems(dirUri);
+
+        // An empty table has to be filled even if the feed itself has not changed, and so does
+        // one that a failed sync left behind the cached feed
+        RefreshCoordinator coordinator = RefreshCoordinator.getInstance(mContext);
+        boolean forceNetwork = stored.isEmpty() || !coordinator.isContentComplete();
+
+        long start = SystemClock.elapsedRealtime();
+        RowWriter writer = new RowWriter(dirUri);
+        writer.start();
+        ExecutorService mapper = (mMappingThreads > 1)
+                ? Executors.newFixedThreadPool(mMappingThreads, MAPPER_THREAD_FACTORY) : null;
+        FeedHandler handler = new FeedHandler(stored,
+                (mapper != null) ? mapper : DIRECT_EXECUTOR, writer);
+
+        // Articles are mapped and committed while the download goes on, the feed is never held
+        // as a whole
+        int result;
+        try {
+            result = Api.fetchArticles(mContext, forceNetwork, handler);
+        } finally {
+            handler.flush();
+            writer.put(END_OF_FEED);
+            writer.join();
+            if (mapper != null) {
+                mapper.shutdown();
+            }
+        }
+
+        boolean success = false;
+        int rowsChanged = writer.getRowsChanged();
+        if (result == Api.RESULT_NOT_MODIFIED) {
+            Log.i(TAG, "Feed not modified, nothing to sync.");
+            success = true;
+        } else if (result == Api.RESULT_OK && writer.hasFailed()) {
+            Log.w(TAG, "Feed could not be stored completely, keeping removed items.");
+        } else if (result == Api.RESULT_OK) {
+            // Only once the whole feed has been stored, a feed that breaks off halfway must not
+            // take the rest of the items with it. Deleted a chunk at a time in one batch, so
+            // that observers are told once the whole batch has been applied.
+            ArrayList<String> deletedIds = new ArrayList<>(stored.size());
+            for (StoredItem storedItem : stored.values()) {
+                deletedIds.add(Long.toString(storedItem.id));
+            }
+            ArrayList<ContentProviderOperation> cpo = new ArrayList<>();
+            for (int from = 0; from < deletedIds.size(); from += DELETE_CHUNK_SIZE) {
+                List<String> chunk = deletedIds.subList(from,
+                        Math.min(deletedIds.size(), from + DELETE_CHUNK_SIZE));
+                String placeholders = TextUtils.join(",", Collections.nCopies(chunk.size(), "?"));
+                cpo.add(ContentProviderOperation.newDelete(dirUri)
+                        .withSelection(ItemsContract.Items._ID + " IN (" + placeholders + ")",
+                                chunk.toArray(new String[chunk.size()]))
+                        .build());
+            }
+
+            try {
+                if (!cpo.isEmpty()) {
+                    ContentProviderResult[] results = mContext.getContentResolver()
+                            .applyBatch(ItemsContract.CONTENT_AUTHORITY, cpo);
+                    for (ContentProviderResult batchResult : results) {
+                        rowsChanged += batchResult.count;
+                    }
+                }
+                success = true;
+            } catch (RemoteException | OperationApplicationException e) {
+                Log.e(TAG, "Error updating content.", e);
+            }
+
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+            Log.i(TAG, "Sync finished, " + handler.getArticleCount() + " articles mapped on "
+                    + mMappingThreads + " threads, " + rowsChanged + " rows changed in " + elapsed
+                    + " ms (" + (writer.getRowsWritten() + deletedIds.size()) * 1000L / elapsed
+                    + " rows/s).");
+        } else {
+            Log.w(TAG, "Feed could not be read, keeping existing content.");
+        }
+
+        // A feed that was read to the end with every write and delete done brings the items up
+        // to date. One that was read but not stored, or a sync that stopped after writing some
+        // rows, leaves them behind. A sync that never got a feed and never wrote anything
+        // changes nothing, so the next one may still revalidate.
+        if (result == Api.RESULT_OK) {
+            coordinator.setContentComplete(success);
+        } else if (writer.getRowsWritten() > 0 || writer.hasFailed()) {
+            coordinator.setContentComplete(false);
+        }
+
+        mContext.sendStickyBroadcast(new Intent(UpdaterService.BROADCAST_ACTION_STATE_CHANGE)
+                .putExtra(UpdaterService.EXTRA_REFRESHING, false)
+                .putExtra(UpdaterService.EXTRA_ROWS_CHANGED, rowsChanged));
+        return success;
+    }
+
+    private HashMap<String, StoredItem> loadStoredItems(Uri dirUri) {
+        HashMap<String, StoredItem> stored = new HashMap<>();
+        Cursor cursor = mContext.getContentResolver()
+                .query(dirUri, StoredItem.PROJECTION, null, null, null);
+        if (cursor == null) {
+            return stored;
+        }
+
+        try {
+            while (cursor.moveToNext()) {
+                StoredItem storedItem = new StoredItem();
+                storedItem.id = cursor.getLong(StoredItem._ID);
+                storedItem.contentHash = cursor.getLong(StoredItem.CONTENT_HASH);
+                stored.put(cursor.getString(StoredItem.SERVER_ID), storedItem);
+            }
+        } finally {
+            cursor.close();
+        }
+        return stored;
+    }
+
+    /**
+     * Collects articles into {@link MapTask}s on the parsing thread, and queues each task for the
+     * writer as soon as it has been handed to the mapping threads, which keeps the feed order.
+     */
+    private static class FeedHandler implements Api.ArticleHandler {
+        private final HashMap<String, StoredItem> mStored;
+        private final Executor mExecutor;
+        private final RowWriter mWriter;
+        private MapTask mTask = new MapTask();
+        private int mArticleCount;
+
+        FeedHandler(HashMap<String, StoredItem> stored, Executor executor, RowWriter writer) {
+            mStored = stored;
+            mExecutor = executor;
+            mWriter = writer;
+        }
+
+        @Override
+        public void onArticle(FeedItem item) {
+            // The stored rows are only touched here, the mapping threads get what they need
+            mTask.add(item, mStored.remove(item.id));
+            mArticleCount++;
+            if (mTask.size() == MAP_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        /** Queues the articles collected so far. */
+        void flush() {
+            if (mTask.size() == 0) {
+                return;
+            }
+            FutureTask<List<ContentValues>> future = new FutureTask<>(mTask);
+            mExecutor.execute(future);
+            mWriter.put(future);
+            mTask = new MapTask();
+        }
+
+        int getArticleCount() {
+            return mArticleCount;
+        }
+    }
+
+    /**
+     * Maps a chunk of articles to rows, leaving out those whose stored row is up to date.
+     */
+    static class MapTask implements Callable<List<ContentValues>> {
+        private final ArrayList<FeedItem> mItems = new ArrayList<>(MAP_CHUNK_SIZE);
+        private final ArrayList<StoredItem> mStoredItems = new ArrayList<>(MAP_CHUNK_SIZE);
+
+        void add(FeedItem item, StoredItem storedItem) {
+            mItems.add(item);
+            mStoredItems.add(storedItem);
+        }
+
+        int size() {
+            return mItems.size();
+        }
+
+        @Override
+        public List<ContentValues> call() {
+            ArrayList<ContentValues> rows = new ArrayList<>(mItems.size());
+            for (int i = 0; i < mItems.size(); i++) {
+                FeedItem item = mItems.get(i);
+                long hash = item.contentHash();
+                StoredItem storedItem = mStoredItems.get(i);
+                if (storedItem != null && storedItem.contentHash == hash) {
+                    continue;
+                }
+                if (!isComplete(item)) {
+                    continue;
+                }
+
+                ContentValues values = new ContentValues();
+                values.put(ItemsContract.Items.SERVER_ID, item.id);
+                values.put(ItemsContract.Items.AUTHOR, item.author);
+                values.put(ItemsContract.Items.TITLE, item.title);
+                values.put(ItemsContract.Items.BODY, item.body);
+                values.put(ItemsContract.Items.THUMB_URL, item.thumb);
+                values.put(ItemsContract.Items.PHOTO_URL, item.photo);
+                values.put(ItemsContract.Items.ASPECT_RATIO, item.aspectRatio);
+                values.put(ItemsContract.Items.PUBLISHED_DATE, parseDate(item));
+                values.put(ItemsContract.Items.CONTENT_HASH, hash);
+                rows.add(values);
+            }
+            return rows;
+        }
+
+        /**
+         * Items without a value the items table requires are left out, here rather than in the
+         * provider, so a single one does not fail the write of everything else. An item stored
+         * before keeps its old content.
+         */
+        private static boolean isComplete(FeedItem item) {
+            if (item.title == null || item.author == null || item.thumb == null
+                    || item.photo == null || item.aspectRatio == null) {
+                Log.w(TAG, "Skipping incomplete item " + item.id);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * A date the feed got wrong must not fail the whole sync, the article is kept and sorts
+         * last instead.
+         */
+        private static long parseDate(FeedItem item) {
+            if (item.publishedDate != null) {
+                try {
+                    return Rfc3339Parser.parse(item.publishedDate);
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Bad published date for item " + item.id, e);
+                }
+            } else {
+                Log.w(TAG, "No published date for item " + item.id);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Commits the mapped chunks on its own thread, in the order they were queued. Each commit
+     * takes whatever has queued up since the last one, up to about {@link #WRITE_BATCH_SIZE}
+     * rows, so rows are written as soon as the writer is free instead of waiting for a full
+     * batch.
+     */
+    private class RowWriter implements Runnable {
+        private final BlockingQueue<Future<List<ContentValues>>> mQueue =
+                new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY);
+        private final Uri mDirUri;
+        private final Thread mThread = new Thread(this, "ArticleSync");
+
+        // Only read once the writer thread has been joined
+        private int mRowsWritten;
+        private int mRowsChanged;
+        private boolean mFailed;
+        // Set on the parsing thread if a chunk could not be handed over
+        private boolean mDropped;
+
+        RowWriter(Uri dirUri) {
+            mDirUri = dirUri;
+        }
+
+        void start() {
+            mThread.start();
+        }
+
+        /**
+         * Blocks while the queue is full, {@link #END_OF_FEED} has to be put last. The writer
+         * drains the queue up to the end whatever fails, but should its thread die anyway the
+         * chunk is dropped instead of waiting forever.
+         */
+        void put(Future<List<ContentValues>> chunk) {
+            boolean interrupted = false;
+            boolean queued = false;
+            while (!queued && mThread.isAlive()) {
+                try {
+                    queued = mQueue.offer(chunk, 1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            mDropped |= !queued;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** Waits for the writer to finish, {@link #END_OF_FEED} has to be put first. */
+        void join() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mThread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        int getRowsWritten() {
+            return mRowsWritten;
+        }
+
+        int getRowsChanged() {
+            return mRowsChanged;
+        }
+
+        boolean hasFailed() {
+            return mFailed || mDropped;
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            ArrayList<ContentValues> batch = new ArrayList<>(WRITE_BATCH_SIZE + MAP_CHUNK_SIZE);
+            Future<List<ContentValues>> chunk = take();
+            while (chunk != END_OF_FEED) {
+                batch.clear();
+                do {
+                    if (!mFailed) {
+                        batch.addAll(getRows(chunk));
+                    }
+                    chunk = mQueue.poll();
+                } while (chunk != null && chunk != END_OF_FEED && batch.size() < WRITE_BATCH_SIZE);
+
+                // After a failure the queue is still drained, so the parser never blocks on it
+                if (!batch.isEmpty() && !mFailed) {
+                    write(batch);
+                }
+                if (chunk == null) {
+                    chunk = take();
+                }
+            }
+        }
+
+        private void write(ArrayList<ContentValues> batch) {
+            try {
+                // New and changed items, matched on the server id by the provider
+                mRowsChanged += mContext.getContentResolver().bulkInsert(mDirUri,
+                        batch.toArray(new ContentValues[batch.size()]));
+                mRowsWritten += batch.size();
+            } catch (Throwable e) {
+                // Not only SQLException, whatever the provider throws must not end this thread
+                // before it has drained the queue
+                Log.e(TAG, "Error writing items.", e);
+                mFailed = true;
+            }
+        }
+
+        private List<ContentValues> getRows(Future<List<ContentValues>> chunk) {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return chunk.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException | CancellationException e) {
+                Log.e(TAG, "Error mapping items.", e);
+                mFailed = true;
+                return Collections.emptyList();
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private Future<List<ContentValues>> take() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return mQueue.take();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    static class StoredItem {
+        static final String[] PROJECTION = {
+                ItemsContract.Items._ID,
+                ItemsContract.Items.SERVER_ID,
+                ItemsContract.Items.CONTENT_HASH,
+        };
+
+        static final int _ID = 0;
+        static final int SERVER_ID = 1;
+        static final int CONTENT_HASH = 2;
+
+        long id;
+        long contentHash;
+    }
+}
@@ -39,7 +39,7 @@ public class ItemsContract {
 		String TITLE = "title";
 		/** Type: TEXT NOT NULL */
 		String AUTHOR = "author";
-		/** Type: TEXT NOT NULL */
+		/** Type: TEXT NOT NULL, stored apart from the item and read through /items/[_id]/body */
 		String BODY = "body";
         /** Type: TEXT NOT NULL */
         String THUMB_URL = "thumb_url";
@@ -49,24 +49,83 @@ public class ItemsContract {
 		String ASPECT_RATIO = "aspect_ratio";
 		/** Type: INTEGER NOT NULL DEFAULT 0 */
 		String PUBLISHED_DATE = "published_date";
+		/** Type: INTEGER NOT NULL DEFAULT 0 */
+		String CONTENT_HASH = "content_hash";
 	}
 
 	public static class Items implements ItemsColumns {
 		public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.com.example.xyzreader.items";
 		public static final String CONTENT_ITEM_TYPE = "vnd.android.cursor.item/vnd.com.example.xyzreader.items";
+		public static final String CONTENT_BODY_TYPE = "vnd.android.cursor.item/vnd.com.example.xyzreader.bodies";
+		public static final String CONTENT_POSITION_TYPE = "vnd.android.cursor.item/vnd.com.example.xyzreader.positions";
+
+        /** Newest first, _id breaks ties so that every row has a stable position. */
+        public static final String DEFAULT_SORT = PUBLISHED_DATE + " DESC, " + _ID + " DESC";
+
+		/** Column of /items/[_id]/position: the number of items before it in {@link #DEFAULT_SORT} order. */
+		public static final String POSITION = "position";
 
-        public static final String DEFAULT_SORT = PUBLISHED_DATE + " DESC";
+		/** Query parameter: maximum number of rows to return. */
+		public static final String QUERY_PARAMETER_LIMIT = "limit";
+		/** Query parameter: {@link #PUBLISHED_DATE} of the last row of the previous page. */
+		public static final String QUERY_PARAMETER_AFTER_DATE = "after_date";
+		/** Query parameter: {@link #_ID} of the last row of the previous page. */
+		public static final String QUERY_PARAMETER_AFTER_ID = "after_id";
+		/** Query parameter: number of search results to skip. */
+		public static final String QUERY_PARAMETER_OFFSET = "offset";
+		/** Query parameter: words to search for. */
+		public static final String QUERY_PARAMETER_QUERY = "q";
 
 		/** Matches: /items/ */
 		public static Uri buildDirUri() {
 			return BASE_URI.buildUpon().appendPath("items").build();
 		}
 
+		/** Matches: /items/?limit=[limit] - the first page in {@link #DEFAULT_SORT} order. */
+		public static Uri buildPageUri(int limit) {
+			return buildDirUri().buildUpon()
+					.appendQueryParameter(QUERY_PARAMETER_LIMIT, Integer.toString(limit))
+					.build();
+		}
+
+		/**
+		 * Matches: /items/?limit=[limit]&after_date=[date]&after_id=[_id] - the page that follows
+		 * the given row in {@link #DEFAULT_SORT} order.
+		 */
+		public static Uri buildPageUri(int limit, long afterDate, long afterId) {
+			return buildPageUri(limit).buildUpon()
+					.appendQueryParameter(QUERY_PARAMETER_AFTER_DATE, Long.toString(afterDate))
+					.appendQueryParameter(QUERY_PARAMETER_AFTER_ID, Long.toString(afterId))
+					.build();
+		}
+
+		/**
+		 * Matches: /items/search?q=[query]&limit=[limit]&offset=[offset] - items whose title,
+		 * author or body contain every word of the query, best matches first.
+		 */
+		public static Uri buildSearchUri(String query, int limit, int offset) {
+			return buildDirUri().buildUpon().appendPath("search")
+					.appendQueryParameter(QUERY_PARAMETER_QUERY, query)
+					.appendQueryParameter(QUERY_PARAMETER_LIMIT, Integer.toString(limit))
+					.appendQueryParameter(QUERY_PARAMETER_OFFSET, Integer.toString(offset))
+					.build();
+		}
+
 		/** Matches: /items/[_id]/ */
 		public static Uri buildItemUri(long _id) {
 			return BASE_URI.buildUpon().appendPath("items").appendPath(Long.toString(_id)).build();
 		}
 
+		/** Matches: /items/[_id]/body */
+		public static Uri buildBodyUri(long _id) {
+			return buildItemUri(_id).buildUpon().appendPath("body").build();
+		}
+
+		/** Matches: /items/[_id]/position */
+		public static Uri buildPositionUri(long _id) {
+			return buildItemUri(_id).buildUpon().appendPath("position").build();
+		}
+
         /** Read item ID item detail URI. */
         public static long getItemId(Uri itemUri) {
             return Long.parseLong(itemUri.getPathSegments().get(1));
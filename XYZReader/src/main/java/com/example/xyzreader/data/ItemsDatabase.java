@@ -31,31 +31,204 @@ import android.database.sqlite.SQLiteOpenHelper;
 import static com.example.xyzreader.data.ItemsProvider.Tables;
 
 public class ItemsDatabase extends SQLiteOpenHelper {
-    private static final String DATABASE_NAME = "xyzreader.db";
-    private static final int DATABASE_VERSION = 1;
+    static final String DATABASE_NAME = "xyzreader.db";
+    private static final int DATABASE_VERSION = 5;
+
+    // Page cache of the writing connection, in kibibytes. Enough for the items, their index
+    // and a good part of the search table.
+    private static final int CACHE_SIZE_KB = 4096;
+
+    /** Columns of the {@link Tables#ITEMS} table, which holds everything but the body. */
+    private static final String ITEMS_COLUMNS = ItemsContract.ItemsColumns._ID + ","
+            + ItemsContract.ItemsColumns.SERVER_ID + ","
+            + ItemsContract.ItemsColumns.TITLE + ","
+            + ItemsContract.ItemsColumns.AUTHOR + ","
+            + ItemsContract.ItemsColumns.THUMB_URL + ","
+            + ItemsContract.ItemsColumns.PHOTO_URL + ","
+            + ItemsContract.ItemsColumns.ASPECT_RATIO + ","
+            + ItemsContract.ItemsColumns.PUBLISHED_DATE + ","
+            + ItemsContract.ItemsColumns.CONTENT_HASH;
 
     public ItemsDatabase(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Write-ahead logging lets loaders read the last committed rows while a sync is still
+        // writing, instead of waiting for its transaction to end
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // With a write-ahead log NORMAL only syncs to disk at checkpoints. A crash may lose the
+        // last commits but can't corrupt the file, and the next sync writes them again.
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KB);
+        // Each connection keeps its compiled statements keyed by their SQL, which spells out the
+        // table, the projection and the selection shape. Arguments are bound, so repeated
+        // queries like /items/[_id] are prepared once per connection and then reused.
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createItemsTable(db);
+        createListIndex(db);
+        createBodiesTable(db);
+        createTriggers(db);
+        createSearchTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Nothing worth keeping, the next sync downloads everything again
+            db.execSQL("DROP TABLE IF EXISTS " + Tables.ITEMS);
+            onCreate(db);
+            return;
+        }
+
+        if (oldVersion < 3) {
+            // Move bodies out of the items table. SQLite can't drop a column, so the items
+            // table is rebuilt without it.
+            createBodiesTable(db);
+            db.execSQL("INSERT INTO " + Tables.BODIES + " ("
+                    + BodiesColumns.ITEM_ID + "," + BodiesColumns.BODY + ")"
+                    + " SELECT " + ItemsContract.ItemsColumns._ID + ","
+                    + ItemsContract.ItemsColumns.BODY + " FROM " + Tables.ITEMS);
+            db.execSQL("ALTER TABLE " + Tables.ITEMS + " RENAME TO " + Tables.ITEMS + "_old");
+            db.execSQL("DROP INDEX IF EXISTS " + Tables.ITEMS + "_" + ItemsContract.ItemsColumns.SERVER_ID);
+            createItemsTable(db);
+            db.execSQL("INSERT INTO " + Tables.ITEMS + " (" + ITEMS_COLUMNS + ")"
+                    + " SELECT " + ITEMS_COLUMNS + " FROM " + Tables.ITEMS + "_old");
+            db.execSQL("DROP TABLE " + Tables.ITEMS + "_old");
+            createTriggers(db);
+        }
+
+        if (oldVersion < 4) {
+            createSearchTable(db);
+            db.execSQL("INSERT INTO " + Tables.ITEMS_SEARCH + " (docid,"
+                    + ItemsContract.ItemsColumns.TITLE + ","
+                    + ItemsContract.ItemsColumns.AUTHOR + ","
+                    + ItemsContract.ItemsColumns.BODY + ")"
+                    + " SELECT " + Tables.ITEMS + "." + ItemsContract.ItemsColumns._ID + ","
+                    + ItemsContract.ItemsColumns.TITLE + ","
+                    + ItemsContract.ItemsColumns.AUTHOR + ","
+                    + "COALESCE(" + BodiesColumns.BODY + ",'')"
+                    + " FROM " + Tables.ITEMS + " LEFT JOIN " + Tables.BODIES
+                    + " ON " + BodiesColumns.ITEM_ID + "=" + Tables.ITEMS + "." + ItemsContract.ItemsColumns._ID);
+        }
+
+        if (oldVersion < 5) {
+            createListIndex(db);
+        }
+    }
+
+    private static void createItemsTable(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE " + Tables.ITEMS + " ("
                 + ItemsContract.ItemsColumns._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + ItemsContract.ItemsColumns.SERVER_ID + " TEXT,"
                 + ItemsContract.ItemsColumns.TITLE + " TEXT NOT NULL,"
                 + ItemsContract.ItemsColumns.AUTHOR + " TEXT NOT NULL,"
-                + ItemsContract.ItemsColumns.BODY + " TEXT NOT NULL,"
                 + ItemsContract.ItemsColumns.THUMB_URL + " TEXT NOT NULL,"
                 + ItemsContract.ItemsColumns.PHOTO_URL + " TEXT NOT NULL,"
                 + ItemsContract.ItemsColumns.ASPECT_RATIO + " REAL NOT NULL DEFAULT 1.5,"
-                + ItemsContract.ItemsColumns.PUBLISHED_DATE + " INTEGER NOT NULL DEFAULT 0"
+                + ItemsContract.ItemsColumns.PUBLISHED_DATE + " INTEGER NOT NULL DEFAULT 0,"
+                + ItemsContract.ItemsColumns.CONTENT_HASH + " INTEGER NOT NULL DEFAULT 0"
                 + ")" );
+
+        // Sync matches rows on the server id
+        db.execSQL("CREATE UNIQUE INDEX " + Tables.ITEMS + "_" + ItemsContract.ItemsColumns.SERVER_ID
+                + " ON " + Tables.ITEMS + " (" + ItemsContract.ItemsColumns.SERVER_ID + ")");
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + Tables.ITEMS);
-        onCreate(db);
+    /**
+     * Index in {@link ItemsContract.Items#DEFAULT_SORT} order, read backwards, holding every
+     * column of the list. List pages, keyset page starts and position lookups are answered from
+     * the index alone, without a sort and without touching the table.
+     */
+    private static void createListIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX " + Tables.ITEMS + "_list ON " + Tables.ITEMS + " ("
+                + ItemsContract.ItemsColumns.PUBLISHED_DATE + ","
+                + ItemsContract.ItemsColumns._ID + ","
+                + ItemsContract.ItemsColumns.TITLE + ","
+                + ItemsContract.ItemsColumns.AUTHOR + ","
+                + ItemsContract.ItemsColumns.THUMB_URL + ","
+                + ItemsContract.ItemsColumns.PHOTO_URL + ","
+                + ItemsContract.ItemsColumns.ASPECT_RATIO + ","
+                + ItemsContract.ItemsColumns.CONTENT_HASH
+                + ")");
+    }
+
+    private static void createBodiesTable(SQLiteDatabase db) {
+        // The item id is the rowid, so a body is a single B-tree lookup away
+        db.execSQL("CREATE TABLE " + Tables.BODIES + " ("
+                + BodiesColumns.ITEM_ID + " INTEGER PRIMARY KEY,"
+                + BodiesColumns.BODY + " TEXT NOT NULL"
+                + ")" );
+    }
+
+    private static void createTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER " + Tables.ITEMS + "_delete_body"
+                + " AFTER DELETE ON " + Tables.ITEMS + " BEGIN"
+                + " DELETE FROM " + Tables.BODIES
+                + " WHERE " + BodiesColumns.ITEM_ID + "=old." + ItemsContract.ItemsColumns._ID + ";"
+                + " END");
+    }
+
+    /**
+     * Full-text index over title, author and body. The docid is the item id, and triggers keep
+     * it in step with every write to the items and bodies tables.
+     */
+    private static void createSearchTable(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE " + Tables.ITEMS_SEARCH + " USING fts4("
+                + ItemsContract.ItemsColumns.TITLE + ","
+                + ItemsContract.ItemsColumns.AUTHOR + ","
+                + ItemsContract.ItemsColumns.BODY + ","
+                + "tokenize=porter"
+                + ")");
+
+        // Items are inserted before their body, so the body starts out empty
+        db.execSQL("CREATE TRIGGER " + Tables.ITEMS_SEARCH + "_insert_item"
+                + " AFTER INSERT ON " + Tables.ITEMS + " BEGIN"
+                + " INSERT INTO " + Tables.ITEMS_SEARCH + " (docid,"
+                + ItemsContract.ItemsColumns.TITLE + ","
+                + ItemsContract.ItemsColumns.AUTHOR + ","
+                + ItemsContract.ItemsColumns.BODY + ")"
+                + " VALUES (new." + ItemsContract.ItemsColumns._ID + ","
+                + "new." + ItemsContract.ItemsColumns.TITLE + ","
+                + "new." + ItemsContract.ItemsColumns.AUTHOR + ",'');"
+                + " END");
+        db.execSQL("CREATE TRIGGER " + Tables.ITEMS_SEARCH + "_update_item"
+                + " AFTER UPDATE OF " + ItemsContract.ItemsColumns.TITLE + ","
+                + ItemsContract.ItemsColumns.AUTHOR + " ON " + Tables.ITEMS + " BEGIN"
+                + " UPDATE " + Tables.ITEMS_SEARCH + " SET "
+                + ItemsContract.ItemsColumns.TITLE + "=new." + ItemsContract.ItemsColumns.TITLE + ","
+                + ItemsContract.ItemsColumns.AUTHOR + "=new." + ItemsContract.ItemsColumns.AUTHOR
+                + " WHERE docid=new." + ItemsContract.ItemsColumns._ID + ";"
+                + " END");
+        db.execSQL("CREATE TRIGGER " + Tables.ITEMS_SEARCH + "_delete_item"
+                + " AFTER DELETE ON " + Tables.ITEMS + " BEGIN"
+                + " DELETE FROM " + Tables.ITEMS_SEARCH
+                + " WHERE docid=old." + ItemsContract.ItemsColumns._ID + ";"
+                + " END");
+        db.execSQL("CREATE TRIGGER " + Tables.ITEMS_SEARCH + "_insert_body"
+                + " AFTER INSERT ON " + Tables.BODIES + " BEGIN"
+                + " UPDATE " + Tables.ITEMS_SEARCH + " SET "
+                + ItemsContract.ItemsColumns.BODY + "=new." + BodiesColumns.BODY
+                + " WHERE docid=new." + BodiesColumns.ITEM_ID + ";"
+                + " END");
+        db.execSQL("CREATE TRIGGER " + Tables.ITEMS_SEARCH + "_update_body"
+                + " AFTER UPDATE OF " + BodiesColumns.BODY + " ON " + Tables.BODIES + " BEGIN"
+                + " UPDATE " + Tables.ITEMS_SEARCH + " SET "
+                + ItemsContract.ItemsColumns.BODY + "=new." + BodiesColumns.BODY
+                + " WHERE docid=new." + BodiesColumns.ITEM_ID + ";"
+                + " END");
+    }
+
+    interface BodiesColumns {
+        /** Type: INTEGER PRIMARY KEY, the {@link ItemsContract.ItemsColumns#_ID} of the item */
+        String ITEM_ID = "item_id";
+        /** Type: TEXT NOT NULL */
+        String BODY = ItemsContract.ItemsColumns.BODY;
     }
 }
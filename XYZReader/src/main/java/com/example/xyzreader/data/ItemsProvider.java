@@ -32,23 +32,50 @@ import android.content.ContentValues;
 import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.v4.util.Pools;
+import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ItemsProvider extends ContentProvider {
 	private SQLiteOpenHelper mOpenHelper;
 
+	// Uris changed by the batch running on this thread, notified once it commits. Null while
+	// no batch is running.
+	private final ThreadLocal<Set<Uri>> mBatchChanges = new ThreadLocal<>();
+
+	private final Pools.SynchronizedPool<SelectionBuilder> mSelectionBuilderPool =
+			new Pools.SynchronizedPool<>(SELECTION_BUILDER_POOL_SIZE);
+
 	interface Tables {
 		String ITEMS = "items";
+		String BODIES = "bodies";
+		String ITEMS_SEARCH = "items_search";
 	}
 
 	private static final int ITEMS = 0;
 	private static final int ITEMS__ID = 1;
+	private static final int ITEMS__ID__BODY = 2;
+	private static final int ITEMS_SEARCH = 3;
+	private static final int ITEMS__ID__POSITION = 4;
+
+	/** Selection builders kept for reuse, about one per binder thread in the provider at once. */
+	private static final int SELECTION_BUILDER_POOL_SIZE = 4;
+
+	/** Above this many changed items observers are told about the whole directory instead. */
+	private static final int MAX_ITEM_NOTIFICATIONS = 20;
+
+	/** Rows written by {@link #bulkInsert} before it lets waiting writers in. */
+	private static final int BULK_YIELD_INTERVAL = 200;
 
 	private static final UriMatcher sUriMatcher = buildUriMatcher();
 
@@ -56,7 +83,10 @@ public class ItemsProvider extends ContentProvider {
 		final UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
 		final String authority = ItemsContract.CONTENT_AUTHORITY;
 		matcher.addURI(authority, "items", ITEMS);
+		matcher.addURI(authority, "items/search", ITEMS_SEARCH);
 		matcher.addURI(authority, "items/#", ITEMS__ID);
+		matcher.addURI(authority, "items/#/body", ITEMS__ID__BODY);
+		matcher.addURI(authority, "items/#/position", ITEMS__ID__POSITION);
 		return matcher;
 	}
 
@@ -66,14 +96,25 @@ public class ItemsProvider extends ContentProvider {
 		return true;
 	}
 
+	/** Closes the database, for tests that run the provider outside of the app. */
+	@Override
+	public void shutdown() {
+		mOpenHelper.close();
+	}
+
 	@Override
 	public String getType(@NonNull Uri uri) {
 		final int match = sUriMatcher.match(uri);
 		switch (match) {
 			case ITEMS:
+			case ITEMS_SEARCH:
 				return ItemsContract.Items.CONTENT_TYPE;
 			case ITEMS__ID:
 				return ItemsContract.Items.CONTENT_ITEM_TYPE;
+			case ITEMS__ID__BODY:
+				return ItemsContract.Items.CONTENT_BODY_TYPE;
+			case ITEMS__ID__POSITION:
+				return ItemsContract.Items.CONTENT_POSITION_TYPE;
 			default:
 				throw new UnsupportedOperationException("Unknown uri: " + uri);
 		}
@@ -82,8 +123,10 @@ public class ItemsProvider extends ContentProvider {
 	@Override
 	public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
 		final SQLiteDatabase db = mOpenHelper.getReadableDatabase();
-		final SelectionBuilder builder = buildSelection(uri);
-		Cursor cursor = builder.where(selection, selectionArgs).query(db, projection, sortOrder);
+		final SelectionBuilder builder = obtainSelectionBuilder();
+		final String sql = buildQuery(builder, uri, projection, selection, selectionArgs, sortOrder);
+		final Cursor cursor = db.rawQuery(sql, builder.getSelectionArgs());
+		recycleSelectionBuilder(builder);
         if (cursor != null) {
 			//noinspection ConstantConditions
 			cursor.setNotificationUri(getContext().getContentResolver(), uri);
@@ -91,16 +134,68 @@ public class ItemsProvider extends ContentProvider {
         return cursor;
 	}
 
+	/**
+	 * Builds the SQL that {@link #query} runs for a uri, leaving its arguments in the builder.
+	 */
+	String buildQuery(SelectionBuilder builder, Uri uri, String[] projection, String selection,
+			String[] selectionArgs, String sortOrder) {
+		final int match = sUriMatcher.match(uri);
+		buildSelection(uri, match, builder);
+		String limit = null;
+		if (match == ITEMS_SEARCH) {
+			// Ranked results can't be keyed on a row, they are paged by offset instead
+			limit = uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_LIMIT);
+			final String offset = uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_OFFSET);
+			if (limit != null && offset != null) {
+				limit = offset + "," + limit;
+			}
+			if (projection == null) {
+				projection = new String[] { Tables.ITEMS + ".*" };
+			}
+			sortOrder = buildSearchSort(buildMatchQuery(
+					uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_QUERY)));
+		} else if (match == ITEMS) {
+			limit = uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_LIMIT);
+			final String afterDate = uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_AFTER_DATE);
+			final String afterId = uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_AFTER_ID);
+			if (afterDate != null && afterId != null) {
+				// Keyset paging: continue right after the last row of the previous page, which
+				// only makes sense in the order the pages were built with. The outer bound on the
+				// date lets SQLite seek into the list index instead of scanning up to the page.
+				builder.where(ItemsContract.Items.PUBLISHED_DATE + "<=? AND ("
+						+ ItemsContract.Items.PUBLISHED_DATE + "<? OR "
+						+ ItemsContract.Items._ID + "<?)", afterDate, afterDate, afterId);
+				sortOrder = ItemsContract.Items.DEFAULT_SORT;
+			}
+		} else if (match == ITEMS__ID__POSITION && projection == null) {
+			projection = new String[] { ItemsContract.Items.POSITION };
+		}
+		return builder.where(selection, selectionArgs)
+				.buildQuery(projection, null, null, sortOrder, limit);
+	}
+
 	@Override
 	public Uri insert(@NonNull Uri uri, ContentValues values) {
 		final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
 		final int match = sUriMatcher.match(uri);
 		switch (match) {
 			case ITEMS: {
-				final long _id = db.insertOrThrow(Tables.ITEMS, null, values);
-				//noinspection ConstantConditions
-				getContext().getContentResolver().notifyChange(uri, null);
-				return ItemsContract.Items.buildItemUri(_id);
+				final ContentValues itemValues = new ContentValues(values);
+				final String body = removeBody(itemValues);
+				final long _id;
+				db.beginTransaction();
+				try {
+					_id = db.insertOrThrow(Tables.ITEMS, null, itemValues);
+					if (body != null) {
+						db.insertOrThrow(Tables.BODIES, null, buildBodyValues(_id, body));
+					}
+					db.setTransactionSuccessful();
+				} finally {
+					db.endTransaction();
+				}
+				final Uri itemUri = ItemsContract.Items.buildItemUri(_id);
+				notifyChange(itemUri);
+				return itemUri;
 			}
 			default: {
 				throw new UnsupportedOperationException("Unknown uri: " + uri);
@@ -108,28 +203,189 @@ public class ItemsProvider extends ContentProvider {
 		}
 	}
 
+	/**
+	 * Inserts or updates items matched by {@link ItemsContract.Items#SERVER_ID}, all in one
+	 * transaction. Every set of values has to hold all item columns, a set the table does not
+	 * accept fails the whole call. Items whose
+	 * {@link ItemsContract.Items#CONTENT_HASH} has not changed are left alone. Observers are told
+	 * about the items that did change, so caches of the others stay valid.
+	 *
+	 * @return the number of items that were inserted or updated
+	 */
+	@Override
+	public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+		if (sUriMatcher.match(uri) != ITEMS) {
+			throw new UnsupportedOperationException("Unknown uri: " + uri);
+		}
+		final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+		final UpsertStatements statements = new UpsertStatements(db);
+		final Set<Uri> changes = new LinkedHashSet<>();
+		int count = 0;
+		db.beginTransaction();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				final long _id = statements.upsert(values[i]);
+				if (_id != -1) {
+					count++;
+					// One past the limit is enough to know the directory has to be notified
+					if (changes.size() <= MAX_ITEM_NOTIFICATIONS) {
+						changes.add(ItemsContract.Items.buildItemUri(_id));
+					}
+				}
+				if (i % BULK_YIELD_INTERVAL == BULK_YIELD_INTERVAL - 1) {
+					db.yieldIfContendedSafely();
+				}
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+			statements.close();
+		}
+		notifyChanges(changes);
+		return count;
+	}
+
 	@Override
 	public int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
 		final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-		final SelectionBuilder builder = buildSelection(uri);
-		//noinspection ConstantConditions
-		getContext().getContentResolver().notifyChange(uri, null);
-		return builder.where(selection, selectionArgs).update(db, values);
+		final int match = sUriMatcher.match(uri);
+		final SelectionBuilder builder = buildSelection(uri, match, obtainSelectionBuilder());
+
+		// Bodies live in their own table, split them off unless the body itself is addressed
+		ContentValues itemValues = values;
+		String body = null;
+		if (match != ITEMS__ID__BODY && values.containsKey(ItemsContract.Items.BODY)) {
+			if (match != ITEMS__ID) {
+				throw new UnsupportedOperationException("Body can only be updated per item: " + uri);
+			}
+			itemValues = new ContentValues(values);
+			body = removeBody(itemValues);
+		}
+
+		int count = 0;
+		db.beginTransaction();
+		try {
+			if (itemValues.size() > 0) {
+				count = builder.where(selection, selectionArgs).update(db, itemValues);
+			}
+			if (body != null && (count > 0 || itemValues.size() == 0)) {
+				final long _id = ItemsContract.Items.getItemId(uri);
+				count = Math.max(count, db.update(Tables.BODIES, buildBodyValues(_id, body),
+						ItemsDatabase.BodiesColumns.ITEM_ID + "=?",
+						new String[] { Long.toString(_id) }));
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+		recycleSelectionBuilder(builder);
+		if (count > 0) {
+			notifyChange(uri);
+		}
+		return count;
 	}
 
 	@Override
 	public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
 		final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-		final SelectionBuilder builder = buildSelection(uri);
+		final int match = sUriMatcher.match(uri);
+		final SelectionBuilder builder = buildSelection(uri, match, obtainSelectionBuilder())
+				.where(selection, selectionArgs);
+		final Set<Uri> changes = new LinkedHashSet<>();
+		final int count;
+		db.beginTransaction();
+		try {
+			if (match == ITEMS) {
+				// Looked up first so that only the deleted items are notified
+				final Cursor cursor = builder.query(db, new String[] { ItemsContract.Items._ID },
+						null, null, null, Integer.toString(MAX_ITEM_NOTIFICATIONS + 1));
+				try {
+					while (cursor.moveToNext()) {
+						changes.add(ItemsContract.Items.buildItemUri(cursor.getLong(0)));
+					}
+				} finally {
+					cursor.close();
+				}
+			}
+			count = builder.delete(db);
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+		recycleSelectionBuilder(builder);
+		if (count > 0) {
+			if (match == ITEMS) {
+				notifyChanges(changes);
+			} else {
+				notifyChange(uri);
+			}
+		}
+		return count;
+	}
+
+	private void notifyChange(Uri uri) {
+		final Set<Uri> batchChanges = mBatchChanges.get();
+		if (batchChanges != null) {
+			batchChanges.add(uri);
+			return;
+		}
 		//noinspection ConstantConditions
 		getContext().getContentResolver().notifyChange(uri, null);
-		return builder.where(selection, selectionArgs).delete(db);
 	}
 
-	private SelectionBuilder buildSelection(Uri uri) {
-		final SelectionBuilder builder = new SelectionBuilder();
-		final int match = sUriMatcher.match(uri);
-		return buildSelection(uri, match, builder);
+	/**
+	 * Notifies each uri, or adds them to the running batch. More than
+	 * {@link #MAX_ITEM_NOTIFICATIONS} are notified as a change of the whole directory.
+	 */
+	private void notifyChanges(Set<Uri> uris) {
+		final Set<Uri> batchChanges = mBatchChanges.get();
+		if (batchChanges != null) {
+			batchChanges.addAll(uris);
+		} else {
+			notifyChangesNow(uris);
+		}
+	}
+
+	/**
+	 * Notifies each uri once. Uris below another one in the set are left out, observers of a uri
+	 * hear about changes to its ancestors anyway.
+	 */
+	private void notifyChangesNow(Set<Uri> uris) {
+		if (uris.size() > MAX_ITEM_NOTIFICATIONS) {
+			//noinspection ConstantConditions
+			getContext().getContentResolver().notifyChange(ItemsContract.Items.buildDirUri(), null);
+			return;
+		}
+		for (Uri uri : uris) {
+			if (!hasAncestorIn(uri, uris)) {
+				//noinspection ConstantConditions
+				getContext().getContentResolver().notifyChange(uri, null);
+			}
+		}
+	}
+
+	private static boolean hasAncestorIn(Uri uri, Set<Uri> uris) {
+		final List<String> paths = uri.getPathSegments();
+		final Uri.Builder ancestor = new Uri.Builder()
+				.scheme(uri.getScheme())
+				.authority(uri.getAuthority());
+		for (int i = 0; i < paths.size() - 1; i++) {
+			ancestor.appendPath(paths.get(i));
+			if (uris.contains(ancestor.build())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SelectionBuilder obtainSelectionBuilder() {
+		final SelectionBuilder builder = mSelectionBuilderPool.acquire();
+		return builder != null ? builder : new SelectionBuilder();
+	}
+
+	/** Returns a builder to the pool once its statement has run. A builder that threw is dropped. */
+	private void recycleSelectionBuilder(SelectionBuilder builder) {
+		mSelectionBuilderPool.release(builder.reset());
 	}
 
 	private SelectionBuilder buildSelection(Uri uri, int match, SelectionBuilder builder) {
@@ -142,21 +398,241 @@ public class ItemsProvider extends ContentProvider {
 				final String _id = paths.get(1);
 				return builder.table(Tables.ITEMS).where(ItemsContract.Items._ID + "=?", _id);
 			}
+			case ITEMS_SEARCH: {
+				final String matchQuery = buildMatchQuery(
+						uri.getQueryParameter(ItemsContract.Items.QUERY_PARAMETER_QUERY));
+				builder.table(Tables.ITEMS_SEARCH + " JOIN " + Tables.ITEMS + " ON "
+						+ Tables.ITEMS + "." + ItemsContract.Items._ID + "=" + Tables.ITEMS_SEARCH + ".docid");
+				// Both tables have a title and an author, the body is only in the search table
+				builder.mapToTable(ItemsContract.Items.TITLE, Tables.ITEMS)
+						.mapToTable(ItemsContract.Items.AUTHOR, Tables.ITEMS);
+				if (matchQuery == null) {
+					return builder.where("0");
+				}
+				return builder.where(Tables.ITEMS_SEARCH + " MATCH ?", matchQuery);
+			}
+			case ITEMS__ID__BODY: {
+				final String _id = paths.get(1);
+				return builder.table(Tables.BODIES)
+						.map(ItemsContract.Items._ID, ItemsDatabase.BodiesColumns.ITEM_ID)
+						.where(ItemsDatabase.BodiesColumns.ITEM_ID + "=?", _id);
+			}
+			case ITEMS__ID__POSITION: {
+				// Counts the rows that sort before the item, a range over the published date
+				// instead of a walk through the whole list
+				final String _id = paths.get(1);
+				final String date = ItemsContract.Items.PUBLISHED_DATE;
+				final String itemsId = Tables.ITEMS + "." + ItemsContract.Items._ID;
+				return builder.table(Tables.ITEMS + ", " + Tables.ITEMS + " AS target")
+						.map(ItemsContract.Items.POSITION, "COUNT(*)")
+						.where("target." + ItemsContract.Items._ID + "=?", _id)
+						.where(Tables.ITEMS + "." + date + ">target." + date + " OR ("
+								+ Tables.ITEMS + "." + date + "=target." + date + " AND "
+								+ itemsId + ">target." + ItemsContract.Items._ID + ")");
+			}
 			default: {
 				throw new UnsupportedOperationException("Unknown uri: " + uri);
 			}
 		}
 	}
 
+	/**
+	 * Turns free text typed by the user into an FTS query: every word has to match, as a prefix,
+	 * in any column. Quotes are dropped so the input can't break the query syntax.
+	 */
+	private static String buildMatchQuery(String query) {
+		if (query == null) {
+			return null;
+		}
+		final StringBuilder matchQuery = new StringBuilder();
+		for (String term : query.replace("\"", " ").trim().split("\\s+")) {
+			if (term.isEmpty()) {
+				continue;
+			}
+			if (matchQuery.length() > 0) {
+				matchQuery.append(' ');
+			}
+			matchQuery.append('"').append(term).append("*\"");
+		}
+		return matchQuery.length() > 0 ? matchQuery.toString() : null;
+	}
+
+	/**
+	 * Best matches first: items with every word in the title, then in the author, then the rest,
+	 * newest first within each group. Every group is a single lookup in the full-text index
+	 * made once per query, instead of a score worked out for each matching row.
+	 */
+	private static String buildSearchSort(String matchQuery) {
+		if (matchQuery == null) {
+			return ItemsContract.Items.DEFAULT_SORT;
+		}
+		final String match = DatabaseUtils.sqlEscapeString(matchQuery);
+		return buildColumnMatch(ItemsContract.Items.TITLE, match) + " DESC, "
+				+ buildColumnMatch(ItemsContract.Items.AUTHOR, match) + " DESC, "
+				+ ItemsContract.Items.DEFAULT_SORT;
+	}
+
+	private static String buildColumnMatch(String column, String match) {
+		return Tables.ITEMS + "." + ItemsContract.Items._ID + " IN (SELECT docid FROM "
+				+ Tables.ITEMS_SEARCH + " AS hits WHERE hits." + column + " MATCH " + match + ")";
+	}
+
+	/**
+	 * Removes the body from values meant for the items table and returns it, or null if
+	 * there was none.
+	 */
+	private static String removeBody(ContentValues values) {
+		final String body = values.getAsString(ItemsContract.Items.BODY);
+		values.remove(ItemsContract.Items.BODY);
+		return body;
+	}
+
+	private static ContentValues buildBodyValues(long itemId, String body) {
+		final ContentValues values = new ContentValues(2);
+		values.put(ItemsDatabase.BodiesColumns.ITEM_ID, itemId);
+		values.put(ItemsDatabase.BodiesColumns.BODY, body);
+		return values;
+	}
+
+	/**
+	 * Statements for {@link #bulkInsert}, compiled once per call and bound again for every row.
+	 */
+	static class UpsertStatements {
+		// Every item column but the ids, bound in this order
+		private static final String[] COLUMNS = {
+				ItemsContract.Items.TITLE,
+				ItemsContract.Items.AUTHOR,
+				ItemsContract.Items.THUMB_URL,
+				ItemsContract.Items.PHOTO_URL,
+				ItemsContract.Items.ASPECT_RATIO,
+				ItemsContract.Items.PUBLISHED_DATE,
+				ItemsContract.Items.CONTENT_HASH,
+		};
+
+		static final String UPDATE_ITEM;
+		static final String SELECT_ID;
+		static final String INSERT_ITEM;
+		static final String UPDATE_BODY;
+		static final String INSERT_BODY;
+
+		static {
+			final StringBuilder set = new StringBuilder();
+			final StringBuilder placeholders = new StringBuilder();
+			for (String column : COLUMNS) {
+				set.append(column).append("=?,");
+				placeholders.append(",?");
+			}
+			set.setLength(set.length() - 1);
+
+			// -1 if there is no such item yet
+			SELECT_ID = "SELECT COALESCE((SELECT " + ItemsContract.Items._ID + " FROM "
+					+ Tables.ITEMS + " WHERE " + ItemsContract.Items.SERVER_ID + "=?),-1)";
+			// Only touches the row if its content changed
+			UPDATE_ITEM = "UPDATE " + Tables.ITEMS + " SET " + set
+					+ " WHERE " + ItemsContract.Items._ID + "=?"
+					+ " AND " + ItemsContract.Items.CONTENT_HASH + " IS NOT ?";
+			INSERT_ITEM = "INSERT INTO " + Tables.ITEMS + " ("
+					+ TextUtils.join(",", COLUMNS) + "," + ItemsContract.Items.SERVER_ID
+					+ ") VALUES (?" + placeholders + ")";
+			UPDATE_BODY = "UPDATE " + Tables.BODIES + " SET "
+					+ ItemsDatabase.BodiesColumns.BODY + "=? WHERE "
+					+ ItemsDatabase.BodiesColumns.ITEM_ID + "=?";
+			INSERT_BODY = "INSERT INTO " + Tables.BODIES + " ("
+					+ ItemsDatabase.BodiesColumns.ITEM_ID + "," + ItemsDatabase.BodiesColumns.BODY
+					+ ") VALUES (?,?)";
+		}
+
+		private final SQLiteStatement mUpdateItem;
+		private final SQLiteStatement mSelectId;
+		private final SQLiteStatement mInsertItem;
+		private final SQLiteStatement mUpdateBody;
+		private final SQLiteStatement mInsertBody;
+
+		UpsertStatements(SQLiteDatabase db) {
+			mUpdateItem = db.compileStatement(UPDATE_ITEM);
+			mSelectId = db.compileStatement(SELECT_ID);
+			mInsertItem = db.compileStatement(INSERT_ITEM);
+			mUpdateBody = db.compileStatement(UPDATE_BODY);
+			mInsertBody = db.compileStatement(INSERT_BODY);
+		}
+
+		/** Returns the id of the item if it was inserted or changed, -1 otherwise. */
+		long upsert(ContentValues values) {
+			final String serverId = values.getAsString(ItemsContract.Items.SERVER_ID);
+			if (serverId == null) {
+				throw new IllegalArgumentException("Items need a server id: " + values);
+			}
+			final String body = values.getAsString(ItemsContract.Items.BODY);
+
+			// Both the update and the insert throw on values the table does not accept
+			mSelectId.bindString(1, serverId);
+			long _id = mSelectId.simpleQueryForLong();
+			if (_id != -1) {
+				bindColumns(mUpdateItem, values);
+				mUpdateItem.bindLong(COLUMNS.length + 1, _id);
+				bind(mUpdateItem, COLUMNS.length + 2, values.get(ItemsContract.Items.CONTENT_HASH));
+				if (mUpdateItem.executeUpdateDelete() == 0) {
+					return -1;
+				}
+				if (body != null) {
+					mUpdateBody.bindString(1, body);
+					mUpdateBody.bindLong(2, _id);
+					mUpdateBody.executeUpdateDelete();
+				}
+				return _id;
+			}
+
+			bindColumns(mInsertItem, values);
+			mInsertItem.bindString(COLUMNS.length + 1, serverId);
+			_id = mInsertItem.executeInsert();
+			if (body != null) {
+				mInsertBody.bindLong(1, _id);
+				mInsertBody.bindString(2, body);
+				mInsertBody.executeInsert();
+			}
+			return _id;
+		}
+
+		void close() {
+			mUpdateItem.close();
+			mSelectId.close();
+			mInsertItem.close();
+			mUpdateBody.close();
+			mInsertBody.close();
+		}
+
+		private static void bindColumns(SQLiteStatement statement, ContentValues values) {
+			for (int i = 0; i < COLUMNS.length; i++) {
+				bind(statement, i + 1, values.get(COLUMNS[i]));
+			}
+		}
+
+		private static void bind(SQLiteStatement statement, int index, Object value) {
+			if (value == null) {
+				statement.bindNull(index);
+			} else if (value instanceof Float || value instanceof Double) {
+				statement.bindDouble(index, ((Number) value).doubleValue());
+			} else if (value instanceof Number) {
+				statement.bindLong(index, ((Number) value).longValue());
+			} else {
+				statement.bindString(index, value.toString());
+			}
+		}
+	}
+
     /**
      * Apply the given set of {@link ContentProviderOperation}, executing inside
      * a {@link SQLiteDatabase} transaction. All changes will be rolled back if
-     * any single one fails.
+     * any single one fails. Observers are notified once per changed uri, after the
+     * transaction has committed.
      */
     @NonNull
 	public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
             throws OperationApplicationException {
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        final Set<Uri> changes = new LinkedHashSet<>();
+        mBatchChanges.set(changes);
+        boolean successful = false;
         db.beginTransaction();
         try {
             final int numOperations = operations.size();
@@ -165,9 +641,14 @@ public class ItemsProvider extends ContentProvider {
                 results[i] = operations.get(i).apply(this, results, i);
             }
             db.setTransactionSuccessful();
+            successful = true;
             return results;
         } finally {
+            mBatchChanges.remove();
             db.endTransaction();
+            if (successful) {
+                notifyChangesNow(changes);
+            }
         }
     }
 }
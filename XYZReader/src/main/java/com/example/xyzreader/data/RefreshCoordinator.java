@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.text.format.DateUtils;
+
+import com.example.xyzreader.R;
+
+/**
+ * Decides when the articles get downloaded again. A request made while a refresh is running joins
+ * it instead of queueing another one. Unless forced, a request is dropped while the last
+ * successful refresh is younger than {@code R.integer.refresh_ttl_minutes}. Refresh times are
+ * kept in shared preferences, so the policy holds across process restarts. Thread safe.
+ */
+public class RefreshCoordinator {
+    private static final String PREFERENCES_NAME = "refresh";
+    private static final String KEY_LAST_ATTEMPT = "last_attempt";
+    private static final String KEY_LAST_SUCCESS = "last_success";
+    private static final String KEY_CONTENT_COMPLETE = "content_complete";
+
+    private static RefreshCoordinator sInstance;
+
+    private final Context mContext;
+    private final SharedPreferences mPreferences;
+    private final long mTtlMillis;
+
+    private boolean mRefreshing;
+
+    public static synchronized RefreshCoordinator getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RefreshCoordinator(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RefreshCoordinator(Context context) {
+        mContext = context;
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mTtlMillis = context.getResources().getInteger(R.integer.refresh_ttl_minutes)
+                * DateUtils.MINUTE_IN_MILLIS;
+    }
+
+    /**
+     * Starts a refresh unless one is running already, or, when not forced, the content is still
+     * fresh.
+     *
+     * @return true if a refresh was started
+     */
+    public synchronized boolean requestRefresh(boolean force) {
+        if (!tryBeginRefresh(force)) {
+            return false;
+        }
+        mContext.startService(new Intent(mContext, UpdaterService.class));
+        return true;
+    }
+
+    /**
+     * Marks a refresh as running if {@link #requestRefresh} would start one. The caller then has
+     * to run it and report back through {@link #onRefreshFinished}.
+     */
+    synchronized boolean tryBeginRefresh(boolean force) {
+        if (mRefreshing || (!force && isFresh())) {
+            return false;
+        }
+        mRefreshing = true;
+        return true;
+    }
+
+    public synchronized boolean isRefreshing() {
+        return mRefreshing;
+    }
+
+    /** Returns true if the last successful refresh is younger than the time to live. */
+    public boolean isFresh() {
+        long lastSuccess = getLastSuccessTime();
+        long now = System.currentTimeMillis();
+        // A clock set back makes every earlier refresh look like it happened in the future
+        return lastSuccess <= now && now - lastSuccess < mTtlMillis;
+    }
+
+    /** Wall clock time of the last refresh that brought the content up to date, 0 if none. */
+    public long getLastSuccessTime() {
+        return mPreferences.getLong(KEY_LAST_SUCCESS, 0);
+    }
+
+    /** Wall clock time the last refresh ended, whether it worked or not, 0 if none. */
+    public long getLastAttemptTime() {
+        return mPreferences.getLong(KEY_LAST_ATTEMPT, 0);
+    }
+
+    /**
+     * Returns true if the stored items match the last feed that was read. After a refresh that
+     * failed halfway they may be behind a feed that the HTTP cache already has, so it must not
+     * be taken as unchanged.
+     */
+    boolean isContentComplete() {
+        return mPreferences.getBoolean(KEY_CONTENT_COMPLETE, false);
+    }
+
+    /**
+     * Records whether the stored items match the feed. Only set by a refresh that wrote to them,
+     * one that failed before touching anything leaves it as it was.
+     */
+    void setContentComplete(boolean complete) {
+        mPreferences.edit().putBoolean(KEY_CONTENT_COMPLETE, complete).apply();
+    }
+
+    /** Called once a refresh has ended, whoever ran it. */
+    synchronized void onRefreshFinished(boolean success) {
+        mRefreshing = false;
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor editor = mPreferences.edit()
+                .putLong(KEY_LAST_ATTEMPT, now);
+        if (success) {
+            editor.putLong(KEY_LAST_SUCCESS, now);
+        }
+        editor.apply();
+        SyncScheduler.onRefreshFinished(mContext, success);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.text.format.DateUtils;
+
+import java.util.TimeZone;
+
+/**
+ * Parses RFC 3339 timestamps, the format of {@code published_date} in the feed, into
+ * milliseconds since the epoch. Unlike {@link android.text.format.Time#parse3339} it keeps no
+ * state, so it can be called from any number of threads at once. Timestamps with an offset, as
+ * the feed has them, are parsed without allocating. Those without one are read in the default
+ * time zone, and {@link TimeZone#getDefault} returns a copy every time.
+ */
+final class Rfc3339Parser {
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private Rfc3339Parser() {
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm:ss[.fraction](Z|+HH:mm|-HH:mm)}. Fractions are cut off at
+     * the millisecond. As with {@code Time}, a date without a time is taken as midnight and a
+     * time without an offset as local time.
+     *
+     * @throws IllegalArgumentException if the timestamp is malformed
+     */
+    static long parse(CharSequence s) {
+        int length = s.length();
+        if (length < 10 || s.charAt(4) != '-' || s.charAt(7) != '-') {
+            throw malformed(s);
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw malformed(s);
+        }
+        long millis = daysSinceEpoch(year, month, day) * DateUtils.DAY_IN_MILLIS;
+        if (length == 10) {
+            return fromLocalTime(millis);
+        }
+
+        // RFC 3339 allows a lowercase t, or a space instead, for readability
+        char separator = s.charAt(10);
+        if (length < 19 || (separator != 'T' && separator != 't' && separator != ' ')
+                || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            throw malformed(s);
+        }
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        // 60 is a leap second, which rolls over into the next minute
+        int second = digits(s, 17, 2);
+        if (hour > 23 || minute > 59 || second > 60) {
+            throw malformed(s);
+        }
+        millis += hour * DateUtils.HOUR_IN_MILLIS + minute * DateUtils.MINUTE_IN_MILLIS
+                + second * DateUtils.SECOND_IN_MILLIS;
+
+        int i = 19;
+        if (i < length && s.charAt(i) == '.') {
+            int start = ++i;
+            int fraction = 0;
+            while (i < length && isDigit(s.charAt(i))) {
+                if (i - start < 3) {
+                    fraction = fraction * 10 + s.charAt(i) - '0';
+                }
+                i++;
+            }
+            if (i == start) {
+                throw malformed(s);
+            }
+            for (int digits = i - start; digits < 3; digits++) {
+                fraction *= 10;
+            }
+            millis += fraction;
+        }
+        if (i == length) {
+            return fromLocalTime(millis);
+        }
+
+        char sign = s.charAt(i);
+        if ((sign == 'Z' || sign == 'z') && i + 1 == length) {
+            return millis;
+        }
+        if ((sign != '+' && sign != '-') || i + 6 != length || s.charAt(i + 3) != ':') {
+            throw malformed(s);
+        }
+        int offsetHours = digits(s, i + 1, 2);
+        int offsetMinutes = digits(s, i + 4, 2);
+        if (offsetHours > 23 || offsetMinutes > 59) {
+            throw malformed(s);
+        }
+        long offset = offsetHours * DateUtils.HOUR_IN_MILLIS
+                + offsetMinutes * DateUtils.MINUTE_IN_MILLIS;
+        return (sign == '+') ? millis - offset : millis + offset;
+    }
+
+    private static int digits(CharSequence s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                throw malformed(s);
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Days from 1970-01-01 to the given date in the proleptic Gregorian calendar, counted in
+     * 400 year eras that start on March 1st so that the leap day comes last.
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        if (month <= 2) {
+            year--;
+        }
+        // Floored, January and February of year 0 belong to the era before
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /** Turns a wall clock time in the default time zone into UTC. */
+    private static long fromLocalTime(long localMillis) {
+        TimeZone zone = TimeZone.getDefault();
+        // The offset is looked up twice, in case the first guess lands across a DST change
+        long utcMillis = localMillis - zone.getOffset(localMillis);
+        return localMillis - zone.getOffset(utcMillis);
+    }
+
+    private static IllegalArgumentException malformed(CharSequence s) {
+        return new IllegalArgumentException("Not an RFC 3339 timestamp: " + s);
+    }
+}
@@ -33,6 +33,7 @@ package com.example.xyzreader.data;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
@@ -164,14 +165,20 @@ public class SelectionBuilder {
     	}
     }
 
-    private void mapColumns(String[] columns) {
-    	if (mProjectionMap == null) return;
-        for (int i = 0; i < columns.length; i++) {
-            final String target = mProjectionMap.get(columns[i]);
+    /**
+     * Returns a copy of the given columns with mapped columns replaced, the caller's array is
+     * often a shared projection constant and must not change.
+     */
+    private String[] mapColumns(String[] columns) {
+    	if (mProjectionMap == null) return columns;
+        final String[] mapped = columns.clone();
+        for (int i = 0; i < mapped.length; i++) {
+            final String target = mProjectionMap.get(mapped[i]);
             if (target != null) {
-                columns[i] = target;
+                mapped[i] = target;
             }
         }
+        return mapped;
     }
 
     @Override
@@ -192,10 +199,17 @@ public class SelectionBuilder {
      */
     public Cursor query(SQLiteDatabase db, String[] columns, String groupBy,
             String having, String orderBy, String limit) {
+        return db.rawQuery(buildQuery(columns, groupBy, having, orderBy, limit),
+                getSelectionArgs());
+    }
+
+    /** Returns the SQL {@link #query} runs, its arguments are {@link #getSelectionArgs}. */
+    public String buildQuery(String[] columns, String groupBy, String having, String orderBy,
+            String limit) {
         assertTable();
-        if (columns != null) mapColumns(columns);
-        return db.query(mTable, columns, getSelection(), getSelectionArgs(), groupBy, having,
-                orderBy, limit);
+        if (columns != null) columns = mapColumns(columns);
+        return SQLiteQueryBuilder.buildQueryString(false, mTable, columns, getSelection(),
+                groupBy, having, orderBy, limit);
     }
 
     /**
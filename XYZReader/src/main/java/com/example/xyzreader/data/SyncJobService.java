@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Handler;
+
+/**
+ * Runs the background sync scheduled by {@link SyncScheduler}, and schedules the next run once
+ * it is over.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class SyncJobService extends JobService {
+    private final Handler mHandler = new Handler();
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (!RefreshCoordinator.getInstance(this).tryBeginRefresh(false)) {
+            // Still fresh, or a refresh is running already
+            scheduleNextRun();
+            return false;
+        }
+        new SyncTask(params).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // A sync can't be stopped halfway, it runs to its end and only its result is dropped.
+        // Ask for the job to run again, it is skipped if this run did finish.
+        return true;
+    }
+
+    private class SyncTask extends AsyncTask<Void, Void, Boolean> {
+        private final JobParameters mParams;
+
+        SyncTask(JobParameters params) {
+            mParams = params;
+        }
+
+        @Override
+        protected Boolean doInBackground(Void... params) {
+            boolean success = false;
+            try {
+                success = new ArticleSync(SyncJobService.this).run();
+            } finally {
+                RefreshCoordinator.getInstance(SyncJobService.this).onRefreshFinished(success);
+            }
+            return success;
+        }
+
+        @Override
+        protected void onPostExecute(Boolean success) {
+            // A failed run is retried with JobScheduler's exponential backoff
+            jobFinished(mParams, !success);
+            if (success) {
+                scheduleNextRun();
+            }
+        }
+    }
+
+    /**
+     * Schedules the next run once this one is over. Scheduling the same job id while it still
+     * runs would stop it first, so this waits until the result has been handed back.
+     */
+    private void scheduleNextRun() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                SyncScheduler.scheduleJob(getApplicationContext());
+            }
+        });
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.content.WakefulBroadcastReceiver;
+import android.text.format.DateUtils;
+
+import com.example.xyzreader.R;
+
+import java.util.Random;
+
+/**
+ * Keeps the articles fresh in the background, so the list opens on content that is already
+ * there. On Lollipop and later a job runs on an unmetered network while charging, and
+ * JobScheduler backs off exponentially when a run fails. The job is scheduled again with a new
+ * random delay after every run. Older devices get an inexact repeating
+ * alarm that checks the same conditions when it goes off, and failed runs are retried after an
+ * exponentially growing delay. Every run goes through {@link RefreshCoordinator}, so it is
+ * skipped while the content is fresh or a refresh is running already.
+ */
+public class SyncScheduler {
+    static final int JOB_ID = 1;
+
+    private static final String ACTION_SYNC = "com.example.xyzreader.intent.action.SYNC";
+    private static final int REQUEST_PERIODIC = 0;
+    private static final int REQUEST_RETRY = 1;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 30 * DateUtils.SECOND_IN_MILLIS;
+    // Failed runs are retried after 30 seconds, doubling up to about half an hour. After that the
+    // periodic alarm takes over again.
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    private static final String PREFERENCES_NAME = "sync_scheduler";
+    private static final String KEY_FAILURES = "failures";
+
+    private static final Random sRandom = new Random();
+
+    /** Schedules the periodic sync, unless it is scheduled already. */
+    public static void schedule(Context context) {
+        context = context.getApplicationContext();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            if (!isJobPending(context)) {
+                scheduleJob(context);
+            }
+        } else {
+            scheduleAlarm(context, getInterval(context));
+        }
+    }
+
+    private static long getInterval(Context context) {
+        return context.getResources().getInteger(R.integer.sync_interval_minutes)
+                * DateUtils.MINUTE_IN_MILLIS;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static boolean isJobPending(Context context) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Schedules the next run of the sync job, replacing a pending one. Called by
+     * {@link SyncJobService} once a run is over.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    static void scheduleJob(Context context) {
+        long interval = getInterval(context);
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        // A one-shot job instead of a periodic one, which can't be given a flex window before
+        // Nougat. Its random delay keeps devices set up at the same time from syncing in lockstep.
+        scheduler.schedule(new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, SyncJobService.class))
+                .setMinimumLatency(interval + jitter(interval / 4))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build());
+    }
+
+    private static void scheduleAlarm(Context context, long interval) {
+        if (PendingIntent.getBroadcast(context, REQUEST_PERIODIC, buildAlarmIntent(context),
+                PendingIntent.FLAG_NO_CREATE) != null) {
+            return;
+        }
+        // The jitter keeps devices that were set up at the same time from syncing in lockstep
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + interval + jitter(interval / 4), interval,
+                PendingIntent.getBroadcast(context, REQUEST_PERIODIC,
+                        buildAlarmIntent(context), 0));
+    }
+
+    /**
+     * Called after every refresh. Before Lollipop, a failed refresh is retried here with
+     * exponential backoff, JobScheduler takes care of that on later versions.
+     */
+    static void onRefreshFinished(Context context, boolean success) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        SharedPreferences preferences =
+                context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        if (success) {
+            preferences.edit().remove(KEY_FAILURES).apply();
+            return;
+        }
+
+        int failures = preferences.getInt(KEY_FAILURES, 0);
+        preferences.edit().putInt(KEY_FAILURES, failures + 1).apply();
+        if (failures > MAX_BACKOFF_SHIFT) {
+            return;
+        }
+        long delay = INITIAL_BACKOFF_MILLIS << failures;
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + delay + jitter(delay / 2),
+                PendingIntent.getBroadcast(context, REQUEST_RETRY, buildAlarmIntent(context),
+                        PendingIntent.FLAG_UPDATE_CURRENT));
+    }
+
+    private static Intent buildAlarmIntent(Context context) {
+        return new Intent(context, Receiver.class).setAction(ACTION_SYNC);
+    }
+
+    private static long jitter(long bound) {
+        synchronized (sRandom) {
+            return (long) (sRandom.nextDouble() * bound);
+        }
+    }
+
+    private static boolean isUnmeteredAndCharging(Context context) {
+        ConnectivityManager cm =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo ni = cm.getActiveNetworkInfo();
+        if (ni == null || !ni.isConnected() || cm.isActiveNetworkMetered()) {
+            return false;
+        }
+        Intent battery = context.getApplicationContext()
+                .registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    /**
+     * Runs the alarm driven sync before Lollipop, and schedules the sync again after a reboot.
+     */
+    public static class Receiver extends WakefulBroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+                schedule(context);
+                return;
+            }
+            if (ACTION_SYNC.equals(intent.getAction()) && isUnmeteredAndCharging(context)
+                    && RefreshCoordinator.getInstance(context).tryBeginRefresh(false)) {
+                // Holds a wake lock until UpdaterService is done
+                startWakefulService(context, new Intent(context, UpdaterService.class));
+            }
+        }
+    }
+}
@@ -24,15 +24,19 @@
 
 package com.example.xyzreader.remote;
 
+import android.content.Context;
+import android.util.JsonReader;
 import android.util.Log;
+import android.util.MalformedJsonException;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONTokener;
-
+import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.net.HttpURLConnection;
 import java.net.URL;
 
+import okhttp3.Cache;
+import okhttp3.CacheControl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -40,41 +44,148 @@ import okhttp3.Response;
 public class Api {
     private static final String TAG = "Api";
 
+    /** The feed was read completely. */
+    public static final int RESULT_OK = 0;
+    /** The feed has not changed since it was last read, nothing was handed to the handler. */
+    public static final int RESULT_NOT_MODIFIED = 1;
+    /** The feed could not be downloaded or parsed. */
+    public static final int RESULT_ERROR = 2;
+
+    private static OkHttpClient sClient;
+
     private Api() {
     }
 
-    public static JSONArray fetchJsonArray() {
-        String itemsJson;
-        try {
-            itemsJson = fetchPlainText(Config.BASE_URL);
-        } catch (IOException e) {
-            Log.e(TAG, "Error fetching items JSON", e);
-            return null;
+    /**
+     * Returns the client shared by all requests, so connections, TLS sessions and the on-disk
+     * response cache survive between refreshes.
+     */
+    static synchronized OkHttpClient getClient(Context context) {
+        if (sClient == null) {
+            File cacheDir = new File(context.getApplicationContext().getCacheDir(),
+                    Config.HTTP_CACHE_DIR);
+            sClient = new OkHttpClient.Builder()
+                    .cache(new Cache(cacheDir, Config.HTTP_CACHE_SIZE))
+                    .build();
         }
+        return sClient;
+    }
+
+    /**
+     * Receives articles from {@link #fetchArticles(Context, boolean, ArticleHandler)} one at a
+     * time, in feed order.
+     */
+    public interface ArticleHandler {
+        void onArticle(FeedItem item);
+    }
 
-        // Parse JSON
+    /**
+     * Streams the feed straight from the response body and hands every article to the handler
+     * as soon as it has been read, so only one article is held in memory at a time.
+     * <p>
+     * The request is revalidated against the HTTP cache with ETag / Last-Modified, and an
+     * unchanged feed is reported as {@link #RESULT_NOT_MODIFIED} without being parsed.
+     *
+     * @param forceNetwork download and parse the feed even if it has not changed
+     * @return one of {@link #RESULT_OK}, {@link #RESULT_NOT_MODIFIED} or {@link #RESULT_ERROR}
+     */
+    public static int fetchArticles(Context context, boolean forceNetwork, ArticleHandler handler) {
+        return fetchArticles(getClient(context), Config.BASE_URL, forceNetwork, handler);
+    }
+
+    static int fetchArticles(OkHttpClient client, URL url, boolean forceNetwork,
+            ArticleHandler handler) {
+        Response response = null;
         try {
-            JSONTokener tokener = new JSONTokener(itemsJson);
-            Object val = tokener.nextValue();
-            if (!(val instanceof JSONArray)) {
-                throw new JSONException("Expected JSONArray");
+            response = fetch(client, url, forceNetwork);
+
+            // Either served straight from the cache or revalidated with a 304
+            Response networkResponse = response.networkResponse();
+            if (!forceNetwork && (networkResponse == null
+                    || networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED)) {
+                return RESULT_NOT_MODIFIED;
+            }
+
+            readArticles(response.body().charStream(), handler);
+            return RESULT_OK;
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Error reading items JSON", e);
+            return RESULT_ERROR;
+        } finally {
+            if (response != null) {
+                response.body().close();
             }
-            return (JSONArray) val;
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing items JSON", e);
         }
+    }
 
-        return null;
+    static Response fetch(OkHttpClient client, URL url, boolean forceNetwork) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(url);
+        if (forceNetwork) {
+            builder.cacheControl(CacheControl.FORCE_NETWORK);
+        }
+        Request request = builder.build();
+
+        Response response = client.newCall(request).execute();
+        if (!response.isSuccessful()) {
+            response.body().close();
+            throw new IOException("Unexpected response " + response.code());
+        }
+        return response;
     }
 
-    static String fetchPlainText(URL url) throws IOException {
-        OkHttpClient client = new OkHttpClient();
+    static void readArticles(Reader in, ArticleHandler handler) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                handler.onArticle(readArticle(reader));
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
+    private static FeedItem readArticle(JsonReader reader) throws IOException {
+        FeedItem item = new FeedItem();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    item.id = reader.nextString();
+                    break;
+                case "author":
+                    item.author = reader.nextString();
+                    break;
+                case "title":
+                    item.title = reader.nextString();
+                    break;
+                case "body":
+                    item.body = reader.nextString();
+                    break;
+                case "thumb":
+                    item.thumb = reader.nextString();
+                    break;
+                case "photo":
+                    item.photo = reader.nextString();
+                    break;
+                case "aspect_ratio":
+                    item.aspectRatio = reader.nextString();
+                    break;
+                case "published_date":
+                    item.publishedDate = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
 
-        Response response = client.newCall(request).execute();
-        return response.body().string();
+        if (item.id == null) {
+            throw new MalformedJsonException("Item without id");
+        }
+        return item;
     }
 }
@@ -30,6 +30,10 @@ import java.net.URL;
 public class Config {
     public static final URL BASE_URL;
 
+    /** Directory under the app cache dir that holds HTTP responses. */
+    static final String HTTP_CACHE_DIR = "http";
+    static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
     static {
         URL url = null;
         try {
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.remote;
+
+/**
+ * A single article as it appears in the remote feed. Values are kept exactly as they were read,
+ * conversion into database columns is left to the caller.
+ */
+public class FeedItem {
+    public String id;
+    public String author;
+    public String title;
+    public String body;
+    public String thumb;
+    public String photo;
+    public String aspectRatio;
+    public String publishedDate;
+
+    /**
+     * 64-bit FNV-1a hash over every field, used to tell whether a stored article has changed
+     * without comparing the full body text.
+     */
+    public long contentHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, id);
+        hash = hash(hash, author);
+        hash = hash(hash, title);
+        hash = hash(hash, body);
+        hash = hash(hash, thumb);
+        hash = hash(hash, photo);
+        hash = hash(hash, aspectRatio);
+        hash = hash(hash, publishedDate);
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0, length = value.length(); i < length; i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        // Field separator, so that moving text between fields changes the hash
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.ui;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.Html;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.util.LongSparseArray;
+import android.util.LruCache;
+
+import com.example.xyzreader.data.ArticleLoader;
+import com.example.xyzreader.data.ItemsContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads article bodies and turns their HTML into {@link Spanned} text off the UI thread. The text
+ * is split into paragraph chunks so that a long article can be shown in a recycled list, and only
+ * the chunks on screen are ever measured. Rendered bodies are kept in a memory-bounded LRU cache
+ * keyed by item id, and dropped again as soon as the items change. All public methods must be
+ * called on the main thread.
+ */
+public class BodyRenderer {
+
+    // Chunks are cut at the first line break past the minimum length, or at the first space past
+    // the maximum length when a paragraph is too long
+    private static final int MIN_CHUNK_LENGTH = 500;
+    private static final int MAX_CHUNK_LENGTH = 2000;
+
+    public interface Callback {
+        /** Called on the main thread, paragraphs is empty if the item has no body. */
+        void onBodyRendered(long itemId, List<CharSequence> paragraphs);
+    }
+
+    private static BodyRenderer sInstance;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Long, List<CharSequence>> mCache;
+    private final LongSparseArray<ArrayList<Callback>> mPending = new LongSparseArray<>();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "BodyRenderer");
+        }
+    });
+
+    // Bumped whenever the cache is invalidated, renders started before that are not cached
+    private int mGeneration;
+
+    public static BodyRenderer getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BodyRenderer(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private BodyRenderer(Context context) {
+        mContext = context;
+
+        // Sized in kilobytes, a sixteenth of what the app may use
+        int cacheSize = (int) (Runtime.getRuntime().maxMemory() / 1024 / 16);
+        mCache = new LruCache<Long, List<CharSequence>>(cacheSize) {
+            @Override
+            protected int sizeOf(Long itemId, List<CharSequence> paragraphs) {
+                int length = 0;
+                for (CharSequence paragraph : paragraphs) {
+                    length += paragraph.length();
+                }
+                return length * 2 / 1024 + 1;
+            }
+        };
+
+        mContext.getContentResolver().registerContentObserver(ItemsContract.Items.buildDirUri(),
+                true, new ContentObserver(mMainHandler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        onChange(selfChange, null);
+                    }
+
+                    @Override
+                    public void onChange(boolean selfChange, Uri uri) {
+                        invalidate(uri);
+                    }
+                });
+    }
+
+    /**
+     * Returns the rendered body if it is cached, null otherwise.
+     */
+    public List<CharSequence> getCached(long itemId) {
+        return mCache.get(itemId);
+    }
+
+    /**
+     * Delivers the rendered body to the callback, right away if it is cached, or once it has been
+     * rendered in the background. A render already in progress for the same item is shared.
+     */
+    public void render(long itemId, Callback callback) {
+        List<CharSequence> cached = mCache.get(itemId);
+        if (cached != null) {
+            if (callback != null) {
+                callback.onBodyRendered(itemId, cached);
+            }
+            return;
+        }
+
+        ArrayList<Callback> callbacks = mPending.get(itemId);
+        if (callbacks == null) {
+            callbacks = new ArrayList<>(1);
+            mPending.put(itemId, callbacks);
+            mExecutor.execute(new RenderTask(itemId, mGeneration));
+        }
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+    }
+
+    /**
+     * Renders the body in the background so that it is cached by the time it is shown.
+     */
+    public void prefetch(long itemId) {
+        render(itemId, null);
+    }
+
+    /**
+     * Stops delivering results to the callback.
+     */
+    public void cancel(Callback callback) {
+        for (int i = 0; i < mPending.size(); i++) {
+            mPending.valueAt(i).remove(callback);
+        }
+    }
+
+    private void invalidate(Uri uri) {
+        if (uri != null && uri.getPathSegments().size() > 1) {
+            long itemId = ItemsContract.Items.getItemId(uri);
+            mCache.remove(itemId);
+            // Renders of other items are still current and may be cached
+            if (mPending.get(itemId) != null) {
+                mGeneration++;
+            }
+        } else {
+            mGeneration++;
+            mCache.evictAll();
+        }
+    }
+
+    private void onRendered(long itemId, int generation, List<CharSequence> paragraphs) {
+        if (generation == mGeneration) {
+            mCache.put(itemId, paragraphs);
+        }
+
+        ArrayList<Callback> callbacks = mPending.get(itemId);
+        mPending.remove(itemId);
+        if (callbacks != null) {
+            for (Callback callback : callbacks) {
+                callback.onBodyRendered(itemId, paragraphs);
+            }
+        }
+    }
+
+    /**
+     * Splits rendered text into chunks at line breaks, leaving out the whitespace between them.
+     * Spans are kept with the chunk they cover.
+     */
+    static List<CharSequence> split(Spanned text) {
+        ArrayList<CharSequence> chunks = new ArrayList<>();
+        int length = text.length();
+        int start = skipWhitespace(text, 0, length);
+        while (start < length) {
+            int end = length;
+            if (length - start > MIN_CHUNK_LENGTH) {
+                int lineBreak = TextUtils.indexOf(text, '\n', start + MIN_CHUNK_LENGTH);
+                if (lineBreak >= 0 && lineBreak - start <= MAX_CHUNK_LENGTH) {
+                    end = lineBreak;
+                } else if (length - start > MAX_CHUNK_LENGTH) {
+                    int space = TextUtils.indexOf(text, ' ', start + MAX_CHUNK_LENGTH);
+                    end = (space >= 0) ? space : length;
+                }
+            }
+
+            int trimmedEnd = end;
+            while (trimmedEnd > start && Character.isWhitespace(text.charAt(trimmedEnd - 1))) {
+                trimmedEnd--;
+            }
+            if (trimmedEnd > start) {
+                chunks.add(text.subSequence(start, trimmedEnd));
+            }
+            start = skipWhitespace(text, end, length);
+        }
+        return chunks;
+    }
+
+    private static int skipWhitespace(CharSequence text, int start, int length) {
+        while (start < length && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private class RenderTask implements Runnable {
+        private final long mItemId;
+        private final int mStartGeneration;
+
+        RenderTask(long itemId, int generation) {
+            mItemId = itemId;
+            mStartGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            List<CharSequence> paragraphs = Collections.emptyList();
+            Cursor cursor = mContext.getContentResolver().query(
+                    ItemsContract.Items.buildBodyUri(mItemId),
+                    ArticleLoader.BodyQuery.PROJECTION, null, null, null);
+            if (cursor != null) {
+                try {
+                    if (cursor.moveToFirst()) {
+                        paragraphs = split(Html.fromHtml(
+                                cursor.getString(ArticleLoader.BodyQuery.BODY)));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+
+            final List<CharSequence> rendered = paragraphs;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onRendered(mItemId, mStartGeneration, rendered);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.ui;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.format.DateUtils;
+import android.util.LongSparseArray;
+
+import java.util.HashMap;
+
+/**
+ * Formats article bylines such as "2 hours ago by Author". Relative times are shown to the hour,
+ * so a formatted byline stays right for a while and is cached by publish date instead of being
+ * formatted on every bind. The cache is dropped when the clock reaches the next minute, and when
+ * the time, time zone or locale is changed. All methods must be called on the main thread.
+ */
+public class BylineFormatter {
+
+    private static BylineFormatter sInstance;
+
+    // Keyed by the publish date
+    private final LongSparseArray<String> mRelativeTimes = new LongSparseArray<>();
+    private final LongSparseArray<HashMap<String, String>> mBylines = new LongSparseArray<>();
+
+    // The minute the cached strings were formatted in
+    private long mClockMinute = Long.MIN_VALUE;
+
+    public static BylineFormatter getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BylineFormatter(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private BylineFormatter(Context context) {
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                clear();
+            }
+        }, filter);
+    }
+
+    /** Returns the publish date relative to now, like "2 hours ago". */
+    public String getRelativeTime(long publishedDate) {
+        checkClock();
+        return getCachedRelativeTime(publishedDate);
+    }
+
+    /** Returns the relative publish date followed by the author. */
+    public String getByline(long publishedDate, String author) {
+        checkClock();
+        HashMap<String, String> bylines = mBylines.get(publishedDate);
+        if (bylines == null) {
+            bylines = new HashMap<>();
+            mBylines.put(publishedDate, bylines);
+        }
+        String byline = bylines.get(author);
+        if (byline == null) {
+            byline = getCachedRelativeTime(publishedDate) + " by " + author;
+            bylines.put(author, byline);
+        }
+        return byline;
+    }
+
+    private String getCachedRelativeTime(long publishedDate) {
+        String relativeTime = mRelativeTimes.get(publishedDate);
+        if (relativeTime == null) {
+            relativeTime = DateUtils.getRelativeTimeSpanString(publishedDate,
+                    System.currentTimeMillis(), DateUtils.HOUR_IN_MILLIS,
+                    DateUtils.FORMAT_ABBREV_ALL).toString();
+            mRelativeTimes.put(publishedDate, relativeTime);
+        }
+        return relativeTime;
+    }
+
+    // Drops the cache if the clock moved on to another minute, the strings formatted before may
+    // have gone stale. Minutes rather than hours, since each article's hours roll over at its
+    // own minute, and days at local midnight, which is not on the hour in every time zone.
+    private void checkClock() {
+        long clockMinute = System.currentTimeMillis() / DateUtils.MINUTE_IN_MILLIS;
+        if (clockMinute != mClockMinute) {
+            clear();
+            mClockMinute = clockMinute;
+        }
+    }
+
+    private void clear() {
+        mRelativeTimes.clear();
+        mBylines.clear();
+    }
+}
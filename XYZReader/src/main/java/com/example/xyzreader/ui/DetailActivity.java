@@ -27,6 +27,7 @@ package com.example.xyzreader.ui;
 import android.app.Fragment;
 import android.app.FragmentManager;
 import android.app.LoaderManager;
+import android.content.CursorLoader;
 import android.content.Loader;
 import android.database.Cursor;
 import android.os.Bundle;
@@ -35,7 +36,9 @@ import android.support.v4.view.ViewPager;
 import android.support.v7.app.AppCompatActivity;
 
 import com.example.xyzreader.R;
+import com.example.xyzreader.data.Article;
 import com.example.xyzreader.data.ArticleLoader;
+import com.example.xyzreader.data.ArticleRepository;
 import com.example.xyzreader.data.ItemsContract;
 
 /**
@@ -44,8 +47,13 @@ import com.example.xyzreader.data.ItemsContract;
 public class DetailActivity extends AppCompatActivity
         implements LoaderManager.LoaderCallbacks<Cursor> {
 
+    private static final int ARTICLES_LOADER = 0;
+    private static final int START_POSITION_LOADER = 1;
+
     private Cursor mCursor;
     private long mStartId;
+    // Where mStartId sits in the list, -1 until it has been looked up
+    private int mStartPosition = -1;
 
     private ViewPager mPager;
     private MyPagerAdapter mPagerAdapter;
@@ -56,8 +64,6 @@ public class DetailActivity extends AppCompatActivity
 
         setContentView(R.layout.activity_article_detail);
 
-        getLoaderManager().initLoader(0, null, this);
-
         mPagerAdapter = new MyPagerAdapter(getFragmentManager());
         mPager = (ViewPager) findViewById(R.id.pager);
         mPager.setAdapter(mPagerAdapter);
@@ -69,6 +75,7 @@ public class DetailActivity extends AppCompatActivity
                 if (mCursor != null) {
                     mCursor.moveToPosition(position);
                 }
+                prefetchNeighbours(position);
             }
         });
 
@@ -78,36 +85,83 @@ public class DetailActivity extends AppCompatActivity
             }
         }
 
+        getLoaderManager().initLoader(ARTICLES_LOADER, null, this);
+        if (mStartId > 0) {
+            getLoaderManager().initLoader(START_POSITION_LOADER, null, this);
+        }
     }
 
     @Override
-    public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
+    public Loader<Cursor> onCreateLoader(int id, Bundle bundle) {
+        if (id == START_POSITION_LOADER) {
+            return new CursorLoader(this, ItemsContract.Items.buildPositionUri(mStartId),
+                    new String[]{ItemsContract.Items.POSITION}, null, null, null);
+        }
         return ArticleLoader.newAllArticlesInstance(this);
     }
 
     @Override
     public void onLoadFinished(Loader<Cursor> cursorLoader, Cursor cursor) {
+        if (cursorLoader.getId() == START_POSITION_LOADER) {
+            mStartPosition = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            selectStartPosition();
+            return;
+        }
+
         mCursor = cursor;
         mPagerAdapter.notifyDataSetChanged();
+        selectStartPosition();
+        prefetchNeighbours(mPager.getCurrentItem());
+    }
 
-        // Select the start ID
-        if (mStartId > 0) {
-            mCursor.moveToFirst();
+    /** Opens the start item once both the list and its position in it have loaded. */
+    private void selectStartPosition() {
+        if (mStartId <= 0 || mCursor == null || mStartPosition < 0) {
+            return;
+        }
 
-            while (!mCursor.isAfterLast()) {
+        int position = mStartPosition;
+        if (!mCursor.moveToPosition(position)
+                || mCursor.getLong(ArticleLoader.Query._ID) != mStartId) {
+            // The items changed between the two queries, look for the row instead
+            position = -1;
+            for (mCursor.moveToFirst(); !mCursor.isAfterLast(); mCursor.moveToNext()) {
                 if (mCursor.getLong(ArticleLoader.Query._ID) == mStartId) {
-                    final int position = mCursor.getPosition();
-                    mPager.setCurrentItem(position, false);
+                    position = mCursor.getPosition();
                     break;
                 }
-                mCursor.moveToNext();
             }
-            mStartId = 0;
+        }
+        if (position >= 0) {
+            mPager.setCurrentItem(position, false);
+        }
+        mStartId = 0;
+        getLoaderManager().destroyLoader(START_POSITION_LOADER);
+    }
+
+    /**
+     * Renders the bodies of the pages on either side of the given one, so they are ready by the
+     * time the user swipes to them.
+     */
+    private void prefetchNeighbours(int position) {
+        if (mCursor == null) {
+            return;
+        }
+        BodyRenderer renderer = BodyRenderer.getInstance(this);
+        ArticleRepository repository = ArticleRepository.getInstance(this);
+        for (int neighbour = position - 1; neighbour <= position + 1; neighbour += 2) {
+            if (neighbour >= 0 && mCursor.moveToPosition(neighbour)) {
+                repository.put(Article.fromCursor(mCursor));
+                renderer.prefetch(mCursor.getLong(ArticleLoader.Query._ID));
+            }
         }
     }
 
     @Override
     public void onLoaderReset(Loader<Cursor> cursorLoader) {
+        if (cursorLoader.getId() == START_POSITION_LOADER) {
+            return;
+        }
         mCursor = null;
         mPagerAdapter.notifyDataSetChanged();
     }
@@ -121,6 +175,8 @@ public class DetailActivity extends AppCompatActivity
         @Override
         public Fragment getItem(int position) {
             mCursor.moveToPosition(position);
+            // The page reads its row from here instead of querying it again
+            ArticleRepository.getInstance(DetailActivity.this).put(Article.fromCursor(mCursor));
             return DetailFragment.newInstance(mCursor.getLong(ArticleLoader.Query._ID), mCursor.getString(ArticleLoader.Query.TITLE));
         }
 
@@ -32,9 +32,9 @@ import android.database.Cursor;
 import android.os.Bundle;
 import android.support.design.widget.CollapsingToolbarLayout;
 import android.support.v4.app.ShareCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.text.Html;
-import android.text.format.DateUtils;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -42,26 +42,36 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.example.xyzreader.R;
+import com.example.xyzreader.data.Article;
 import com.example.xyzreader.data.ArticleLoader;
+import com.example.xyzreader.data.ArticleRepository;
 import com.squareup.picasso.Picasso;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A fragment representing a single Article detail screen. This fragment is
  * either contained in a {@link ListActivity} in two-pane mode (on
  * tablets) or a {@link DetailActivity} on handsets.
  */
 public class DetailFragment extends Fragment implements
-        LoaderManager.LoaderCallbacks<Cursor> {
-    private static final String TAG = "DetailFragment";
+        LoaderManager.LoaderCallbacks<Cursor>, BodyRenderer.Callback,
+        ArticleRepository.Listener {
 
     public static final String ARG_ITEM_ID = "item_id";
 
-    private Cursor mCursor;
+    private Article mArticle;
+    private List<CharSequence> mParagraphs = Collections.emptyList();
     private long mItemId;
     private View mRootView;
     private String mTitle;
 
     private ImageView mPhotoView;
+    private BodyAdapter mBodyAdapter;
+
+    private CharSequence mHeaderTitle;
+    private CharSequence mHeaderByline;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the
@@ -88,6 +98,19 @@ public class DetailFragment extends Fragment implements
             mItemId = getArguments().getLong(ARG_ITEM_ID);
             mTitle = getArguments().getString("title");
         }
+
+        // Usually rendered already, either by the neighbouring page or by an earlier visit
+        List<CharSequence> cached = BodyRenderer.getInstance(getActivity()).getCached(mItemId);
+        if (cached != null) {
+            mParagraphs = cached;
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        BodyRenderer.getInstance(getActivity()).cancel(this);
+        ArticleRepository.getInstance(getActivity()).removeListener(this);
     }
 
     @Override
@@ -98,7 +121,26 @@ public class DetailFragment extends Fragment implements
         // the fragment's onCreate may cause the same LoaderManager to be dealt to multiple
         // fragments because their mIndex is -1 (haven't been added to the activity yet). Thus,
         // we do this in onActivityCreated.
-        getLoaderManager().initLoader(0, null, this);
+        ArticleRepository repository = ArticleRepository.getInstance(getActivity());
+        Article cached = repository.get(mItemId);
+        if (cached != null) {
+            // Handed over by the pager, there is no need to query the row again until it changes
+            mArticle = cached;
+            repository.addListener(this);
+            bindViews();
+            BodyRenderer.getInstance(getActivity()).render(mItemId, this);
+        } else {
+            getLoaderManager().initLoader(0, null, this);
+        }
+    }
+
+    @Override
+    public void onArticleInvalidated(long itemId) {
+        if (itemId == mItemId || itemId == ArticleRepository.ALL_ITEMS) {
+            // From now on the loader watches the row itself
+            ArticleRepository.getInstance(getActivity()).removeListener(this);
+            getLoaderManager().initLoader(0, null, this);
+        }
     }
 
     @Override
@@ -110,6 +152,11 @@ public class DetailFragment extends Fragment implements
 
         mPhotoView = (ImageView) mRootView.findViewById(R.id.image);
 
+        RecyclerView bodyView = (RecyclerView) mRootView.findViewById(R.id.article_body);
+        bodyView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        mBodyAdapter = new BodyAdapter();
+        bodyView.setAdapter(mBodyAdapter);
+
         bindViews();
 
         CollapsingToolbarLayout collapsingToolbarLayout = (CollapsingToolbarLayout) mRootView.findViewById(R.id.collapsing_toolbar);
@@ -123,14 +170,10 @@ public class DetailFragment extends Fragment implements
             return;
         }
 
-        TextView titleView = (TextView) mRootView.findViewById(R.id.article_title);
-        TextView bylineView = (TextView) mRootView.findViewById(R.id.article_byline);
-        TextView bodyView = (TextView) mRootView.findViewById(R.id.article_body);
+        if (mArticle != null) {
 
-        if (mCursor != null) {
-
-            String title = mCursor.getString(ArticleLoader.Query.TITLE);
-            final String shareText = getString(R.string.share_text) + " " + mCursor.getString(ArticleLoader.Query.TITLE);
+            String title = mArticle.title;
+            final String shareText = getString(R.string.share_text) + " " + mArticle.title;
 
             mRootView.findViewById(R.id.share_fab).setOnClickListener(new View.OnClickListener() {
                 @Override
@@ -142,28 +185,32 @@ public class DetailFragment extends Fragment implements
                 }
             });
 
-            titleView.setText(title);
+            mHeaderTitle = title;
 
-            bylineView.setText(Html.fromHtml(
-                    DateUtils.getRelativeTimeSpanString(
-                            mCursor.getLong(ArticleLoader.Query.PUBLISHED_DATE),
-                            System.currentTimeMillis(), DateUtils.HOUR_IN_MILLIS,
-                            DateUtils.FORMAT_ABBREV_ALL).toString()
+            mHeaderByline = Html.fromHtml(
+                    BylineFormatter.getInstance(getActivity()).getRelativeTime(mArticle.publishedDate)
                             + " by <font color='#000000'>"
-                            + mCursor.getString(ArticleLoader.Query.AUTHOR)
-                            + "</font>"));
-            bodyView.setText(Html.fromHtml(mCursor.getString(ArticleLoader.Query.BODY)));
+                            + mArticle.author
+                            + "</font>");
 
-            Picasso.with(getActivity()).load(mCursor.getString(ArticleLoader.Query.PHOTO_URL)).into(mPhotoView);
-            mPhotoView.setContentDescription(mCursor.getString(ArticleLoader.Query.TITLE));
+            Picasso.with(getActivity()).load(mArticle.photoUrl).into(mPhotoView);
+            mPhotoView.setContentDescription(mArticle.title);
 
         } else {
-            titleView.setText("N/A");
-            bylineView.setText("N/A");
-            bodyView.setText("N/A");
+            mHeaderTitle = "N/A";
+            mHeaderByline = "N/A";
         }
 
+        mBodyAdapter.notifyDataSetChanged();
+    }
 
+    @Override
+    public void onBodyRendered(long itemId, List<CharSequence> paragraphs) {
+        if (itemId != mItemId || !isAdded()) {
+            return;
+        }
+        mParagraphs = paragraphs;
+        bindViews();
     }
 
     @Override
@@ -180,20 +227,82 @@ public class DetailFragment extends Fragment implements
             return;
         }
 
-        mCursor = cursor;
-        if (mCursor != null && !mCursor.moveToFirst()) {
-            Log.e(TAG, "Error reading item detail cursor");
-            mCursor.close();
-            mCursor = null;
+        mArticle = null;
+        if (cursor != null && cursor.moveToFirst()) {
+            mArticle = Article.fromCursor(cursor);
+            ArticleRepository.getInstance(getActivity()).put(mArticle);
         }
 
         bindViews();
+
+        // Rendered off the UI thread. Also runs after the item changed, when the cached body
+        // has been dropped.
+        BodyRenderer.getInstance(getActivity()).render(mItemId, this);
     }
 
     @Override
     public void onLoaderReset(Loader<Cursor> cursorLoader) {
-        mCursor = null;
-        bindViews();
+        // mArticle is a copy, it stays valid without the cursor
+    }
+
+    /**
+     * Title and byline, followed by the body one paragraph chunk per row.
+     */
+    private class BodyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private static final int TYPE_HEADER = 0;
+        private static final int TYPE_PARAGRAPH = 1;
+
+        @Override
+        public int getItemViewType(int position) {
+            return (position == 0) ? TYPE_HEADER : TYPE_PARAGRAPH;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+            if (viewType == TYPE_HEADER) {
+                return new HeaderViewHolder(
+                        inflater.inflate(R.layout.list_item_article_header, parent, false));
+            }
+            return new ParagraphViewHolder(
+                    inflater.inflate(R.layout.list_item_article_paragraph, parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            if (holder instanceof HeaderViewHolder) {
+                HeaderViewHolder header = (HeaderViewHolder) holder;
+                header.titleView.setText(mHeaderTitle);
+                header.bylineView.setText(mHeaderByline);
+            } else {
+                ((ParagraphViewHolder) holder).paragraphView.setText(mParagraphs.get(position - 1));
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return mParagraphs.size() + 1;
+        }
+    }
+
+    private static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        public TextView titleView;
+        public TextView bylineView;
+
+        public HeaderViewHolder(View view) {
+            super(view);
+            titleView = (TextView) view.findViewById(R.id.article_title);
+            bylineView = (TextView) view.findViewById(R.id.article_byline);
+        }
+    }
+
+    private static class ParagraphViewHolder extends RecyclerView.ViewHolder {
+        public TextView paragraphView;
+
+        public ParagraphViewHolder(View view) {
+            super(view);
+            paragraphView = (TextView) view;
+        }
     }
 
 }
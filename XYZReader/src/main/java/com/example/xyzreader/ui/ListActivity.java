@@ -31,7 +31,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.Loader;
-import android.database.Cursor;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.v4.widget.SwipeRefreshLayout;
@@ -39,18 +39,22 @@ import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.support.v7.widget.Toolbar;
-import android.text.format.DateUtils;
 import android.view.Menu;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.example.xyzreader.R;
-import com.example.xyzreader.data.ArticleLoader;
+import com.example.xyzreader.data.ArticleListLoader;
+import com.example.xyzreader.data.ArticleSnapshot;
 import com.example.xyzreader.data.ItemsContract;
+import com.example.xyzreader.data.RefreshCoordinator;
+import com.example.xyzreader.data.SyncScheduler;
 import com.example.xyzreader.data.UpdaterService;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+import java.util.ArrayList;
 
 /**
  * An activity representing a list of Articles. This activity has different presentations for
@@ -59,10 +63,34 @@ import com.squareup.picasso.Picasso;
  * activity presents a grid of items as cards.
  */
 public class ListActivity extends AppCompatActivity implements
-        LoaderManager.LoaderCallbacks<Cursor> {
+        LoaderManager.LoaderCallbacks<ArticleSnapshot> {
+
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 6;
+    // Lists at least this long are diffed on a background thread
+    private static final int ASYNC_DIFF_THRESHOLD = 500;
+
+    // Tags every thumbnail request, so they can be paused while the list flings
+    private static final Object THUMBNAIL_TAG = new Object();
+
+    private static final String STATE_PAGE_ARGS = "page_args";
+    private static final String ARG_AFTER_DATE = "after_date";
+    private static final String ARG_AFTER_ID = "after_id";
 
     private SwipeRefreshLayout mSwipeRefreshLayout;
     private RecyclerView mRecyclerView;
+    private StaggeredGridLayoutManager mLayoutManager;
+    private Adapter mAdapter;
+    private ThumbnailPrefetcher mThumbnailPrefetcher;
+
+    // Width of the thumbnail in a grid cell, the height follows from the aspect ratio. Images
+    // are decoded at this size and not larger.
+    private int mThumbnailWidth;
+
+    // One loader per page, the loader id is the page index. Every page after the first starts
+    // right after the last row of the page before it.
+    private ArrayList<Bundle> mPageArgs = new ArrayList<>();
+    private final ArrayList<ArticleSnapshot> mPages = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -82,20 +110,63 @@ public class ListActivity extends AppCompatActivity implements
         mSwipeRefreshLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
             @Override
             public void onRefresh() {
-                refresh();
+                refresh(true);
             }
         });
 
         mRecyclerView = (RecyclerView) findViewById(R.id.recycler_view);
-        getLoaderManager().initLoader(0, null, this);
+        int columnCount = getResources().getInteger(R.integer.list_column_count);
+        mLayoutManager =
+                new StaggeredGridLayoutManager(columnCount, StaggeredGridLayoutManager.VERTICAL);
+        mRecyclerView.setLayoutManager(mLayoutManager);
+        mAdapter = new Adapter();
+        mAdapter.setHasStableIds(true);
+        mRecyclerView.setAdapter(mAdapter);
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                maybeLoadNextPage();
+            }
+        });
+
+        // The grid spans the screen, minus the list margins and the card margins in each column
+        int listWidth = getResources().getDisplayMetrics().widthPixels
+                - 2 * getResources().getDimensionPixelSize(R.dimen.list_side_margin);
+        mThumbnailWidth = listWidth / columnCount
+                - 2 * getResources().getDimensionPixelSize(R.dimen.card_margin);
+        mThumbnailPrefetcher = new ThumbnailPrefetcher(Picasso.with(this), THUMBNAIL_TAG,
+                mAdapter, PREFETCH_DISTANCE);
+        mRecyclerView.addOnScrollListener(mThumbnailPrefetcher);
+
+        if (savedInstanceState != null) {
+            ArrayList<Bundle> pageArgs = savedInstanceState.getParcelableArrayList(STATE_PAGE_ARGS);
+            if (pageArgs != null) {
+                mPageArgs = pageArgs;
+            }
+        }
+        if (mPageArgs.isEmpty()) {
+            mPageArgs.add(new Bundle());
+        }
+        for (int page = 0; page < mPageArgs.size(); page++) {
+            mPages.add(null);
+            getLoaderManager().initLoader(page, mPageArgs.get(page), this);
+        }
 
         if (savedInstanceState == null) {
-            refresh();
+            // Skipped if the last sync is recent enough
+            refresh(false);
+            SyncScheduler.schedule(this);
         }
     }
 
-    private void refresh() {
-        startService(new Intent(this, UpdaterService.class));
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putParcelableArrayList(STATE_PAGE_ARGS, mPageArgs);
+    }
+
+    private void refresh(boolean force) {
+        RefreshCoordinator.getInstance(this).requestRefresh(force);
     }
 
     @Override
@@ -111,6 +182,12 @@ public class ListActivity extends AppCompatActivity implements
         unregisterReceiver(mRefreshingReceiver);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Picasso.with(this).cancelTag(THUMBNAIL_TAG);
+    }
+
     private boolean mIsRefreshing = false;
 
     private BroadcastReceiver mRefreshingReceiver = new BroadcastReceiver() {
@@ -128,37 +205,163 @@ public class ListActivity extends AppCompatActivity implements
     }
 
     @Override
-    public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
-        return ArticleLoader.newAllArticlesInstance(this);
+    public Loader<ArticleSnapshot> onCreateLoader(int i, Bundle bundle) {
+        if (bundle == null || !bundle.containsKey(ARG_AFTER_ID)) {
+            return ArticleListLoader.newFirstPageInstance(this, PAGE_SIZE);
+        }
+        return ArticleListLoader.newPageInstance(this, PAGE_SIZE,
+                bundle.getLong(ARG_AFTER_DATE), bundle.getLong(ARG_AFTER_ID));
     }
 
     @Override
-    public void onLoadFinished(Loader<Cursor> cursorLoader, Cursor cursor) {
-        Adapter adapter = new Adapter(cursor);
-        adapter.setHasStableIds(true);
-        mRecyclerView.setAdapter(adapter);
-        int columnCount = getResources().getInteger(R.integer.list_column_count);
-        StaggeredGridLayoutManager sglm =
-                new StaggeredGridLayoutManager(columnCount, StaggeredGridLayoutManager.VERTICAL);
-        mRecyclerView.setLayoutManager(sglm);
+    public void onLoadFinished(Loader<ArticleSnapshot> loader, ArticleSnapshot snapshot) {
+        int page = loader.getId();
+        if (page >= mPages.size()) {
+            return;
+        }
+        mPages.set(page, snapshot);
+
+        int nextPage = page + 1;
+        if (nextPage < mPages.size()) {
+            if (snapshot.size() < PAGE_SIZE) {
+                // This page is the end of the list now, the pages after it are gone
+                dropPagesFrom(nextPage);
+            } else {
+                // Rows moved in or out of this page, the next one has to follow its new last row
+                Bundle args = getNextPageArgs(snapshot);
+                if (!samePageStart(args, mPageArgs.get(nextPage))) {
+                    // Its old rows stay on screen until it has reloaded, rows that are on both
+                    // pages meanwhile are only shown once
+                    mPageArgs.set(nextPage, args);
+                    getLoaderManager().restartLoader(nextPage, args, this);
+                }
+            }
+        }
+
+        swapPages();
     }
 
     @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
-        mRecyclerView.setAdapter(null);
+    public void onLoaderReset(Loader<ArticleSnapshot> loader) {
+        int page = loader.getId();
+        if (page < mPages.size()) {
+            mPages.set(page, null);
+        }
+        swapPages();
+    }
+
+    private void maybeLoadNextPage() {
+        int pages = mPages.size();
+        ArticleSnapshot lastPage = mPages.get(pages - 1);
+        if (lastPage == null || lastPage.size() < PAGE_SIZE) {
+            // Still loading, or there is nothing more to load
+            return;
+        }
+
+        int lastVisible = 0;
+        for (int position : mLayoutManager.findLastVisibleItemPositions(null)) {
+            lastVisible = Math.max(lastVisible, position);
+        }
+        if (lastVisible < mAdapter.getItemCount() - PAGE_SIZE / 2) {
+            return;
+        }
+
+        Bundle args = getNextPageArgs(lastPage);
+        mPageArgs.add(args);
+        mPages.add(null);
+        getLoaderManager().initLoader(pages, args, this);
+    }
+
+    private void dropPagesFrom(int firstPage) {
+        for (int page = mPages.size() - 1; page >= firstPage; page--) {
+            mPages.remove(page);
+            mPageArgs.remove(page);
+            getLoaderManager().destroyLoader(page);
+        }
+    }
+
+    /**
+     * Shows every page up to the first one that has not been loaded yet. A page that is
+     * reloading because the page before it shifted keeps its old rows meanwhile, which may
+     * repeat rows of the page before it. Those are dropped by {@link ArticleSnapshot#concat}.
+     */
+    private void swapPages() {
+        ArrayList<ArticleSnapshot> loaded = new ArrayList<>(mPages.size());
+        for (int page = 0; page < mPages.size(); page++) {
+            ArticleSnapshot snapshot = mPages.get(page);
+            if (snapshot == null) {
+                break;
+            }
+            loaded.add(snapshot);
+        }
+        mAdapter.swapSnapshot(ArticleSnapshot.concat(loaded));
+    }
+
+    private static Bundle getNextPageArgs(ArticleSnapshot page) {
+        int last = page.size() - 1;
+        Bundle args = new Bundle();
+        args.putLong(ARG_AFTER_DATE, page.getPublishedDate(last));
+        args.putLong(ARG_AFTER_ID, page.getId(last));
+        return args;
+    }
+
+    private static boolean samePageStart(Bundle a, Bundle b) {
+        return a.getLong(ARG_AFTER_DATE) == b.getLong(ARG_AFTER_DATE)
+                && a.getLong(ARG_AFTER_ID) == b.getLong(ARG_AFTER_ID);
     }
 
-    private class Adapter extends RecyclerView.Adapter<ViewHolder> {
-        private Cursor mCursor;
+    private class Adapter extends RecyclerView.Adapter<ViewHolder>
+            implements ThumbnailPrefetcher.Source {
+        private final BylineFormatter mBylineFormatter =
+                BylineFormatter.getInstance(ListActivity.this);
+        private ArticleSnapshot mRows = ArticleSnapshot.EMPTY;
+        // Bumped on every swap, so a diff that finishes after a newer swap is dropped
+        private int mSwapGeneration;
+
+        /** Shows the new rows, rebinding only the ones that were added, moved or changed. */
+        public void swapSnapshot(final ArticleSnapshot rows) {
+            final int generation = ++mSwapGeneration;
+            final ArticleSnapshot oldRows = mRows;
+            if (Math.max(oldRows.size(), rows.size()) < ASYNC_DIFF_THRESHOLD) {
+                applyDiff(rows, ListDiff.calculate(oldRows, rows));
+                return;
+            }
+            // Both snapshots are immutable, so the diff can run while the old rows stay bound
+            new AsyncTask<Void, Void, ListDiff>() {
+                @Override
+                protected ListDiff doInBackground(Void... params) {
+                    return ListDiff.calculate(oldRows, rows);
+                }
+
+                @Override
+                protected void onPostExecute(ListDiff diff) {
+                    if (generation == mSwapGeneration) {
+                        applyDiff(rows, diff);
+                    }
+                }
+            }.execute();
+        }
+
+        private void applyDiff(ArticleSnapshot rows, ListDiff diff) {
+            mRows = rows;
+            if (!diff.isEmpty()) {
+                mThumbnailPrefetcher.reset();
+                diff.dispatchTo(this);
+            }
+        }
 
-        public Adapter(Cursor cursor) {
-            mCursor = cursor;
+        @Override
+        public RequestCreator createThumbnailRequest(int position) {
+            return Picasso.with(getApplicationContext())
+                    .load(mRows.getThumbUrl(position))
+                    .resize(mThumbnailWidth, Math.round(mThumbnailWidth / getAspectRatio(position)))
+                    .centerCrop()
+                    .tag(THUMBNAIL_TAG);
         }
 
         @Override
         public long getItemId(int position) {
-            mCursor.moveToPosition(position);
-            return mCursor.getLong(ArticleLoader.Query._ID);
+            return mRows.getId(position);
         }
 
         @Override
@@ -186,40 +389,40 @@ public class ListActivity extends AppCompatActivity implements
 
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
-            mCursor.moveToPosition(position);
-
-            String title = mCursor.getString(ArticleLoader.Query.TITLE);
+            String title = mRows.getTitle(position);
             holder.titleView.setText(title);
 
-            String author = DateUtils.getRelativeTimeSpanString(
-                    mCursor.getLong(ArticleLoader.Query.PUBLISHED_DATE),
-                    System.currentTimeMillis(), DateUtils.HOUR_IN_MILLIS,
-                    DateUtils.FORMAT_ABBREV_ALL).toString()
-                    + " by "
-                    + mCursor.getString(ArticleLoader.Query.AUTHOR);
+            String author = mBylineFormatter.getByline(
+                    mRows.getPublishedDate(position), mRows.getAuthor(position));
 
             holder.subtitleView.setText(author);
 
-            Picasso.with(getApplicationContext())
-                    .load(mCursor.getString(ArticleLoader.Query.THUMB_URL))
-                    .into(holder.thumbnailView);
+            // Reserve the final cell height now, so the image arriving doesn't relayout the grid
+            holder.thumbnailView.setAspectRatio(getAspectRatio(position));
+            createThumbnailRequest(position).into(holder.thumbnailView);
             holder.thumbnailView.setContentDescription(title);
         }
 
         @Override
         public int getItemCount() {
-            return mCursor.getCount();
+            return mRows.size();
+        }
+
+        /** Aspect ratio of a row, never zero. */
+        private float getAspectRatio(int position) {
+            float aspectRatio = mRows.getAspectRatio(position);
+            return (aspectRatio > 0) ? aspectRatio : AspectRatioImageView.DEFAULT_ASPECT_RATIO;
         }
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
-        public ImageView thumbnailView;
+        public AspectRatioImageView thumbnailView;
         public TextView titleView;
         public TextView subtitleView;
 
         public ViewHolder(View view) {
             super(view);
-            thumbnailView = (ImageView) view.findViewById(R.id.thumbnail);
+            thumbnailView = (AspectRatioImageView) view.findViewById(R.id.thumbnail);
             titleView = (TextView) view.findViewById(R.id.article_title);
             subtitleView = (TextView) view.findViewById(R.id.article_subtitle);
         }
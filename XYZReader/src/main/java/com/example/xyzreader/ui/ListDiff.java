@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.ui;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.example.xyzreader.data.ArticleSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The adapter notifications that turn one list of rows into another. Rows are matched by id and
+ * compared by content hash, so only rows that were removed, moved, inserted or changed get
+ * rebound.
+ */
+final class ListDiff {
+    private static final int REMOVE = 0;
+    private static final int MOVE = 1;
+    private static final int INSERT = 2;
+    private static final int CHANGE = 3;
+    private static final int RELOAD = 4;
+
+    // Each op is {type, position, count}, or {MOVE, from, to}, in the order they are dispatched
+    private final ArrayList<int[]> mOps = new ArrayList<>();
+
+    private ListDiff() {
+    }
+
+    /**
+     * Compares two lists. Rows can only be matched up if ids are unique within each list, if an
+     * id repeats the diff falls back to reloading the whole list.
+     */
+    static ListDiff calculate(ArticleSnapshot oldRows, ArticleSnapshot newRows) {
+        ListDiff diff = new ListDiff();
+        HashMap<Long, Integer> oldPositions = positionsOf(oldRows);
+        HashMap<Long, Integer> newPositions = positionsOf(newRows);
+        if (oldPositions.size() != oldRows.size() || newPositions.size() != newRows.size()) {
+            diff.mOps.add(new int[]{RELOAD, 0, 0});
+            return diff;
+        }
+
+        // Removes go from the end, so the positions before each one stay valid
+        int oldSize = oldRows.size();
+        for (int i = oldSize - 1; i >= 0; i--) {
+            if (!newPositions.containsKey(oldRows.getId(i))) {
+                diff.addRemove(i);
+            }
+        }
+
+        // The rows that are left, in their new order, and where each one is after the removes
+        HashMap<Long, Integer> rowPositions = new HashMap<>(oldSize * 2);
+        for (int i = 0; i < oldSize; i++) {
+            long id = oldRows.getId(i);
+            if (newPositions.containsKey(id)) {
+                rowPositions.put(id, rowPositions.size());
+            }
+        }
+        int survivors = rowPositions.size();
+        int[] current = new int[survivors];
+        int newSize = newRows.size();
+        int t = 0;
+        for (int i = 0; i < newSize; i++) {
+            Integer position = rowPositions.get(newRows.getId(i));
+            if (position != null) {
+                current[t++] = position;
+            }
+        }
+        diff.addMoves(current);
+
+        for (int i = 0; i < newSize; i++) {
+            if (!oldPositions.containsKey(newRows.getId(i))) {
+                diff.addRange(INSERT, i);
+            }
+        }
+
+        for (int i = 0; i < newSize; i++) {
+            Integer oldPosition = oldPositions.get(newRows.getId(i));
+            if (oldPosition != null
+                    && oldRows.getContentHash(oldPosition) != newRows.getContentHash(i)) {
+                diff.addRange(CHANGE, i);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Adds the moves that put the rows in their new order, given where each one is now. Rows on
+     * a longest run that is already in order stay put. Every other row is moved right behind the
+     * row that comes before it in the new order, which is already in place by then.
+     * <p>
+     * Moved rows end up in a group right behind the closest row before them that stays put, so
+     * each row has a slot that is known up front: one for where it is now, and one in the group
+     * it moves into. The adapter position of a row is the number of filled slots before its
+     * own, counted in a Fenwick tree, which keeps many moves at O(n log n).
+     */
+    private void addMoves(int[] current) {
+        int count = current.length;
+        boolean[] inPlace = longestIncreasing(current);
+
+        // Groups are numbered by the position of the row they follow plus one, 0 is the group
+        // at the very start
+        int[] groupSizes = new int[count + 1];
+        int[] groups = new int[count];
+        int[] groupIndices = new int[count];
+        int group = 0;
+        for (int i = 0; i < count; i++) {
+            if (inPlace[i]) {
+                group = current[i] + 1;
+            } else {
+                groups[i] = group;
+                groupIndices[i] = groupSizes[group]++;
+            }
+        }
+
+        // Slots in order: the first group, then every row followed by its group
+        int[] ownSlots = new int[count];
+        int[] groupSlots = new int[count + 1];
+        int slots = groupSizes[0];
+        for (int position = 0; position < count; position++) {
+            ownSlots[position] = slots++;
+            groupSlots[position + 1] = slots;
+            slots += groupSizes[position + 1];
+        }
+
+        int[] filled = new int[slots + 1];
+        for (int position = 0; position < count; position++) {
+            add(filled, ownSlots[position], 1);
+        }
+        for (int i = 0; i < count; i++) {
+            if (inPlace[i]) {
+                continue;
+            }
+            int from = countBefore(filled, ownSlots[current[i]]);
+            add(filled, ownSlots[current[i]], -1);
+            int slot = groupSlots[groups[i]] + groupIndices[i];
+            int to = countBefore(filled, slot);
+            add(filled, slot, 1);
+            if (from != to) {
+                mOps.add(new int[]{MOVE, from, to});
+            }
+        }
+    }
+
+    /** Adds to the count of a slot in a Fenwick tree. */
+    private static void add(int[] tree, int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Returns the total count of the slots before the given one in a Fenwick tree. */
+    private static int countBefore(int[] tree, int slot) {
+        int sum = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    boolean isEmpty() {
+        return mOps.isEmpty();
+    }
+
+    void dispatchTo(RecyclerView.Adapter<?> adapter) {
+        for (int[] op : mOps) {
+            switch (op[0]) {
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(op[1], op[2]);
+                    break;
+                case MOVE:
+                    adapter.notifyItemMoved(op[1], op[2]);
+                    break;
+                case INSERT:
+                    adapter.notifyItemRangeInserted(op[1], op[2]);
+                    break;
+                case CHANGE:
+                    adapter.notifyItemRangeChanged(op[1], op[2]);
+                    break;
+                case RELOAD:
+                    adapter.notifyDataSetChanged();
+                    break;
+            }
+        }
+    }
+
+    /** Adds a remove, merged with the one before it if that was the next position down. */
+    private void addRemove(int position) {
+        int[] last = mOps.isEmpty() ? null : mOps.get(mOps.size() - 1);
+        if (last != null && last[0] == REMOVE && last[1] == position + 1) {
+            last[1] = position;
+            last[2]++;
+        } else {
+            mOps.add(new int[]{REMOVE, position, 1});
+        }
+    }
+
+    /** Adds an insert or change, merged with the one before it if that ends right here. */
+    private void addRange(int type, int position) {
+        int[] last = mOps.isEmpty() ? null : mOps.get(mOps.size() - 1);
+        if (last != null && last[0] == type && last[1] + last[2] == position) {
+            last[2]++;
+        } else {
+            mOps.add(new int[]{type, position, 1});
+        }
+    }
+
+    private static HashMap<Long, Integer> positionsOf(ArticleSnapshot rows) {
+        int size = rows.size();
+        HashMap<Long, Integer> positions = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            positions.put(rows.getId(i), i);
+        }
+        return positions;
+    }
+
+    /** Marks one longest strictly increasing subsequence of the values. */
+    private static boolean[] longestIncreasing(int[] values) {
+        int count = values.length;
+        // tails[k] is the index of the smallest value that ends an increasing run of length k + 1
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] result = new boolean[count];
+        for (int i = (length > 0) ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            result[i] = true;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.ui;
+
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+/**
+ * Scroll listener for a grid of thumbnails. Requests made with the tag are paused while the
+ * list flings, and the thumbnails of the next rows in the scroll direction are fetched into
+ * Picasso's memory cache ahead of being bound.
+ */
+public class ThumbnailPrefetcher extends RecyclerView.OnScrollListener {
+
+    public interface Source {
+        int getItemCount();
+
+        /**
+         * Returns the same request binding the given position makes, so that the prefetched
+         * bitmap is the one found in the cache. Null if there is nothing to load.
+         */
+        RequestCreator createThumbnailRequest(int position);
+    }
+
+    private final Picasso mPicasso;
+    private final Object mTag;
+    private final Source mSource;
+    private final int mDistance;
+
+    // Positions already fetched, inclusive, or -1 if none
+    private int mPrefetchedFrom = -1;
+    private int mPrefetchedTo = -1;
+
+    /**
+     * @param tag      tag all thumbnail requests are made with
+     * @param distance number of items to fetch ahead of the visible ones
+     */
+    public ThumbnailPrefetcher(Picasso picasso, Object tag, Source source, int distance) {
+        mPicasso = picasso;
+        mTag = tag;
+        mSource = source;
+        mDistance = distance;
+    }
+
+    /**
+     * Forgets what has been fetched, to be called whenever items move to other positions.
+     */
+    public void reset() {
+        mPrefetchedFrom = -1;
+        mPrefetchedTo = -1;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+            mPicasso.pauseTag(mTag);
+        } else {
+            mPicasso.resumeTag(mTag);
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        StaggeredGridLayoutManager layoutManager =
+                (StaggeredGridLayoutManager) recyclerView.getLayoutManager();
+
+        int first = Integer.MAX_VALUE;
+        for (int position : layoutManager.findFirstVisibleItemPositions(null)) {
+            if (position != RecyclerView.NO_POSITION) {
+                first = Math.min(first, position);
+            }
+        }
+        int last = RecyclerView.NO_POSITION;
+        for (int position : layoutManager.findLastVisibleItemPositions(null)) {
+            last = Math.max(last, position);
+        }
+        if (last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        if (dy > 0) {
+            prefetch(last + 1, Math.min(last + mDistance, mSource.getItemCount() - 1));
+        } else if (dy < 0) {
+            prefetch(Math.max(first - mDistance, 0), first - 1);
+        }
+    }
+
+    private void prefetch(int from, int to) {
+        if (from > to) {
+            return;
+        }
+
+        for (int position = from; position <= to; position++) {
+            if (position >= mPrefetchedFrom && position <= mPrefetchedTo) {
+                continue;
+            }
+            RequestCreator request = mSource.createThumbnailRequest(position);
+            if (request != null) {
+                request.priority(Picasso.Priority.LOW).fetch();
+            }
+        }
+
+        if (mPrefetchedFrom == -1) {
+            mPrefetchedFrom = from;
+            mPrefetchedTo = to;
+        } else {
+            mPrefetchedFrom = Math.min(mPrefetchedFrom, from);
+            mPrefetchedTo = Math.max(mPrefetchedTo, to);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016. Dmytro Karataiev.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.example.xyzreader.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Rfc3339ParserTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private TimeZone mDefaultZone;
+
+    @Before
+    public void setUp() {
+        mDefaultZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultZone);
+    }
+
+    @Test
+    public void parsesUtc() {
+        assertEquals(0L, Rfc3339Parser.parse("1970-01-01T00:00:00Z"));
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-20T00:00:00Z"));
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-20t00:00:00z"));
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-20 00:00:00Z"));
+        assertEquals(-1000L, Rfc3339Parser.parse("1969-12-31T23:59:59Z"));
+    }
+
+    @Test
+    public void appliesOffsets() {
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-20T02:00:00+02:00"));
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-19T18:30:00-05:30"));
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-20T00:00:00+00:00"));
+        assertEquals(1371686400000L, Rfc3339Parser.parse("2013-06-20T00:00:00-00:00"));
+    }
+
+    @Test
+    public void readsFractionsToTheMillisecond() {
+        assertEquals(500L, Rfc3339Parser.parse("1970-01-01T00:00:00.5Z"));
+        assertEquals(120L, Rfc3339Parser.parse("1970-01-01T00:00:00.12Z"));
+        assertEquals(123L, Rfc3339Parser.parse("1970-01-01T00:00:00.123Z"));
+        assertEquals(123L, Rfc3339Parser.parse("1970-01-01T00:00:00.123999999Z"));
+        assertEquals(3600123L, Rfc3339Parser.parse("1970-01-01T02:00:00.123+01:00"));
+    }
+
+    @Test
+    public void handlesLeapDays() {
+        assertEquals(951782400000L, Rfc3339Parser.parse("2000-02-29T00:00:00Z"));
+        assertEquals(1456704000000L, Rfc3339Parser.parse("2016-02-29T00:00:00Z"));
+        assertEquals(1456790400000L, Rfc3339Parser.parse("2016-03-01T00:00:00Z"));
+        assertMalformed("2015-02-29T00:00:00Z");
+        assertMalformed("1900-02-29T00:00:00Z");
+    }
+
+    @Test
+    public void rollsLeapSecondsOver() {
+        assertEquals(Rfc3339Parser.parse("2017-01-01T00:00:00Z"),
+                Rfc3339Parser.parse("2016-12-31T23:59:60Z"));
+    }
+
+    @Test
+    public void readsTimesWithoutOffsetAsLocal() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        assertEquals(1371700800000L, Rfc3339Parser.parse("2013-06-20T00:00:00"));
+        assertEquals(1371700800000L, Rfc3339Parser.parse("2013-06-20"));
+        // Straight after the spring forward gap, and in the repeated hour in the fall
+        assertEquals(1457854200000L, Rfc3339Parser.parse("2016-03-13T03:30:00"));
+        assertEquals(1478410200000L, Rfc3339Parser.parse("2016-11-06T01:30:00"));
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        String[] malformed = {
+                "",
+                "2013",
+                "2013-06",
+                "2013-6-20",
+                "2013/06/20",
+                "2013-00-20T00:00:00Z",
+                "2013-13-20T00:00:00Z",
+                "2013-06-00T00:00:00Z",
+                "2013-06-31T00:00:00Z",
+                "2013-06-20X00:00:00Z",
+                "2013-06-20T24:00:00Z",
+                "2013-06-20T00:60:00Z",
+                "2013-06-20T00:00:61Z",
+                "2013-06-20T00:00Z",
+                "2013-06-20T00:00:00.Z",
+                "2013-06-20T00:00:00ZZ",
+                "2013-06-20T00:00:00+0100",
+                "2013-06-20T00:00:00+01",
+                "2013-06-20T00:00:00+24:00",
+                "2013-06-20T00:00:00+01:60",
+                "2013-06-20T00:00:00 UTC",
+                "2013-06-2aT00:00:00Z",
+        };
+        for (String s : malformed) {
+            assertMalformed(s);
+        }
+    }
+
+    /**
+     * Compares random timestamps against {@link GregorianCalendar}, switched to the proleptic
+     * Gregorian calendar that RFC 3339 uses.
+     */
+    @Test
+    public void matchesReferenceImplementation() {
+        GregorianCalendar calendar = new GregorianCalendar(UTC, Locale.US);
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        Random random = new Random(3339);
+        for (int i = 0; i < 200000; i++) {
+            int year = random.nextInt(10000);
+            int month = 1 + random.nextInt(12);
+            calendar.clear();
+            calendar.set(year, month - 1, 1);
+            int day = 1 + random.nextInt(calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+            int hour = random.nextInt(24);
+            int minute = random.nextInt(60);
+            int second = random.nextInt(60);
+            int fractionDigits = random.nextInt(10);
+            int nanos = random.nextInt(1000000000);
+            boolean utc = random.nextInt(4) == 0;
+            int offsetMinutes = (random.nextInt(2 * 14 * 60 + 1) - 14 * 60);
+
+            StringBuilder s = new StringBuilder(String.format(Locale.US,
+                    "%04d-%02d-%02dT%02d:%02d:%02d", year, month, day, hour, minute, second));
+            if (fractionDigits > 0) {
+                s.append('.').append(String.format(Locale.US, "%09d", nanos), 0, fractionDigits);
+            }
+            if (utc) {
+                s.append('Z');
+            } else {
+                s.append(String.format(Locale.US, "%c%02d:%02d", offsetMinutes < 0 ? '-' : '+',
+                        Math.abs(offsetMinutes) / 60, Math.abs(offsetMinutes) % 60));
+            }
+
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, minute, second);
+            int millis = (fractionDigits == 0) ? 0
+                    : (int) (nanos / Math.pow(10, 9 - Math.min(fractionDigits, 3)))
+                    * (int) Math.pow(10, 3 - Math.min(fractionDigits, 3));
+            calendar.set(Calendar.MILLISECOND, millis);
+            long expected = calendar.getTimeInMillis()
+                    - (utc ? 0 : offsetMinutes * 60 * 1000L);
+
+            assertEquals(s.toString(), expected, Rfc3339Parser.parse(s));
+        }
+    }
+
+    private static void assertMalformed(String s) {
+        try {
+            Rfc3339Parser.parse(s);
+            fail("Parsed malformed timestamp " + s);
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+}